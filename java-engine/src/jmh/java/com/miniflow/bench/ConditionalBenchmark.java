@@ -0,0 +1,58 @@
+package com.miniflow.bench;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.strategies.ConditionalStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionalBenchmark {
+    @Param({
+        "status == 200",
+        "context.user.role == 'admin' && len(items) > 2 || startsWith(lower(name), 'mini')",
+        "(price * qty) - discount >= 100 && !contains(tags, 'blocked')"
+    })
+    public String condition;
+
+    private final ConditionalStrategy strategy = new ConditionalStrategy();
+    private Node node;
+    private ExecutionContext context;
+
+    @Setup
+    public void setup() {
+        node = Workflows.node("cond", "CONDITIONAL", Map.of("condition", condition));
+        context = new ExecutionContext();
+        context.setVariable("status", 200);
+        context.setVariable("user", Map.of("role", "admin"));
+        context.setVariable("items", Workflows.items(5));
+        context.setVariable("name", "MiniFlow");
+        context.setVariable("price", 12.5);
+        context.setVariable("qty", 10);
+        context.setVariable("discount", 5);
+        context.setVariable("tags", java.util.List.of("a", "b"));
+    }
+
+    @Benchmark
+    public Object evaluate() throws Exception {
+        strategy.execute(node, context);
+        return context.getVariable("__branch");
+    }
+}
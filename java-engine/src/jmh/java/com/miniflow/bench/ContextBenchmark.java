@@ -0,0 +1,58 @@
+package com.miniflow.bench;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.Variable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextBenchmark {
+    private static final Variable STATUS = Variable.of("status");
+    private static final Variable INDEX = Variable.of("index");
+
+    private ExecutionContext context;
+    private int i;
+
+    @Setup
+    public void setup() {
+        context = new ExecutionContext();
+        for (int k = 0; k < 40; k++) context.setVariable("var" + k, "value" + k);
+        context.setInt(STATUS, 200);
+    }
+
+    @Benchmark
+    public Object byName() {
+        context.setVariable("index", i++);
+        return context.getVariable("status");
+    }
+
+    @Benchmark
+    public long bySlot() {
+        context.setInt(INDEX, i++);
+        return context.getLong(STATUS, 0);
+    }
+
+    // What every FOREACH element and parallel branch pays: fork and write the first variables.
+    @Benchmark
+    public ExecutionContext forkAndWrite() {
+        ExecutionContext scope = context.fork();
+        scope.setInt(INDEX, i++);
+        scope.set(STATUS, "item");
+        return scope;
+    }
+}
@@ -0,0 +1,36 @@
+package com.miniflow.bench;
+
+import com.miniflow.factory.ExecutorFactory;
+import com.miniflow.strategies.NodeExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutorFactoryBenchmark {
+    private static final String[] TYPES = {
+        "START", "http_request", "COMMAND", "conditional", "CREATE_FOLDER", "JOIN", "END"
+    };
+
+    @Benchmark
+    public void dispatchAllTypes(Blackhole bh) {
+        for (String type : TYPES) {
+            NodeExecutor executor = ExecutorFactory.getExecutor(type);
+            bh.consume(executor);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.miniflow.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+import com.miniflow.strategies.HttpRequestStrategy;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Full HTTP_REQUEST node against an in-process stub: pooled client, request, streaming mapping.
+// The stub writes headers and body separately, so without nodelay Nagle's algorithm would add a
+// delayed-ACK stall to every request and the benchmark would measure that instead.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HttpRequestBenchmark {
+    @Param({"10", "5000"})
+    public int items;
+
+    @Param({"true", "false"})
+    public boolean retainBody;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private final HttpRequestStrategy strategy = new HttpRequestStrategy();
+    private Node node;
+
+    @Setup
+    public void setup() throws Exception {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("status", "ok");
+        doc.put("items", Workflows.items(items));
+        doc.put("data", Map.of("id", 42, "name", "Ana"));
+        byte[] body = new ObjectMapper().writeValueAsBytes(doc);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/data", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverThreads = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverThreads);
+        server.start();
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("url", "http://127.0.0.1:" + server.getAddress().getPort() + "/data");
+        config.put("retainBody", retainBody);
+        config.put("map", Map.of("name", "$.data.name", "first", "$.items[0].id", "st", "$.status"));
+        node = Workflows.node("http", "HTTP_REQUEST", config);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public Object request() throws Exception {
+        ExecutionContext context = new ExecutionContext();
+        strategy.execute(node, context);
+        return context.getVariable("name");
+    }
+}
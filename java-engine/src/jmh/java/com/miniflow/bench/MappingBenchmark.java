@@ -0,0 +1,69 @@
+package com.miniflow.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.json.JsonExtractionPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Output mapping of HTTP_REQUEST responses (formerly HttpRequestStrategy.resolveMapping).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    @Param({"10", "5000"})
+    public int items;
+
+    private JsonExtractionPlan dotted;
+    private JsonExtractionPlan jsonPath;
+    private byte[] body;
+    private String text;
+
+    @Setup
+    public void setup() throws Exception {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("status", "ok");
+        doc.put("meta", Map.of("count", items));
+        doc.put("items", Workflows.items(items));
+        doc.put("data", Map.of("id", 42, "name", "Ana", "nested", Map.of("v", 7)));
+        body = new ObjectMapper().writeValueAsBytes(doc);
+        text = new String(body, StandardCharsets.UTF_8);
+
+        dotted = JsonExtractionPlan.compile(Map.of(
+            "name", "$.data.name", "v", "$.data.nested.v", "st", "$.status", "count", "$.meta.count"));
+        jsonPath = JsonExtractionPlan.compile(Map.of(
+            "first", "$.items[0].id", "prices", "$.items[*].price", "cheap", "$.items[?(@.price < 10)].name"));
+    }
+
+    @Benchmark
+    public Map<String, Object> dottedPaths() {
+        return dotted.evaluate(body, 200, text);
+    }
+
+    @Benchmark
+    public Map<String, Object> dottedPathsStreamed() {
+        return dotted.evaluate(new ByteArrayInputStream(body), 200);
+    }
+
+    @Benchmark
+    public Map<String, Object> jsonPathSelectors() {
+        return jsonPath.evaluate(body, 200, text);
+    }
+}
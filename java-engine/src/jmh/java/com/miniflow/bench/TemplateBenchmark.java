@@ -0,0 +1,56 @@
+package com.miniflow.bench;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.template.Escaping;
+import com.miniflow.template.Template;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// COMMAND field rendering (formerly CommandStrategy.renderTemplate).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+    private static final String COMMAND =
+        "python3 job.py --user {{context.user.name}} --id {{ id }} --out \"/tmp/{{ dir | default:'out' }}/x.json\" '{{ payload | json }}'";
+
+    private ExecutionContext context;
+
+    @Setup
+    public void setup() {
+        context = new ExecutionContext();
+        context.setVariable("user", Map.of("name", "Ana O'Neil"));
+        context.setVariable("id", 42);
+        context.setVariable("payload", Map.of("items", List.of(1, 2, 3), "q", "a \"quoted\" $value"));
+    }
+
+    @Benchmark
+    public Template compileCached() {
+        return Template.compile(COMMAND);
+    }
+
+    @Benchmark
+    public String renderShell() {
+        return Template.compile(COMMAND).render(context, Escaping.POSIX);
+    }
+
+    @Benchmark
+    public List<String> renderArgv() {
+        return Template.compile(COMMAND).renderArgv(context);
+    }
+}
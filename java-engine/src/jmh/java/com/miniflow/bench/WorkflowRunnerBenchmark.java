@@ -0,0 +1,64 @@
+package com.miniflow.bench;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.RunResult;
+import com.miniflow.core.WorkflowPlan;
+import com.miniflow.core.WorkflowRunner;
+import com.miniflow.events.EventSink;
+import com.miniflow.model.Workflow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkflowRunnerBenchmark {
+    @Param({"linear", "branching", "large"})
+    public String shape;
+
+    private Workflow workflow;
+    private WorkflowPlan plan;
+    private WorkflowRunner runner;
+
+    @Setup
+    public void setup() {
+        workflow = switch (shape) {
+            case "linear" -> Workflows.linear(50);
+            case "branching" -> Workflows.branching(20);
+            default -> Workflows.large(10, 50);
+        };
+        plan = WorkflowPlan.compile(workflow);
+        EventSink discard = event -> {
+        };
+        runner = new WorkflowRunner(discard);
+    }
+
+    @Benchmark
+    public RunResult runCompiledPlan() {
+        ExecutionContext context = new ExecutionContext();
+        context.setVariable("step", -1);
+        context.setVariable("status", 200);
+        context.setVariable("name", "bench");
+        return runner.run(plan, context);
+    }
+
+    // Includes the content-hash lookup in the plan cache.
+    @Benchmark
+    public RunResult runWorkflow() {
+        return runner.run(workflow);
+    }
+}
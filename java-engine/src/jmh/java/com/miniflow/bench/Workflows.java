@@ -0,0 +1,118 @@
+package com.miniflow.bench;
+
+import com.miniflow.model.Connection;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Generated workflows built only from in-process node types, so runs measure the engine itself.
+final class Workflows {
+    private Workflows() {
+    }
+
+    static Workflow linear(int length) {
+        Workflow w = workflow("linear-" + length);
+        add(w, node("start", "START", Map.of()));
+        String prev = "start";
+        for (int i = 0; i < length; i++) {
+            String id = "c" + i;
+            add(w, node(id, "CONDITIONAL", Map.of("condition", "context.step != " + i)));
+            edge(w, prev, id, i == 0 ? null : "TRUE");
+            prev = id;
+        }
+        add(w, node("end", "END", Map.of()));
+        edge(w, prev, "end", "TRUE");
+        return w;
+    }
+
+    // A chain of diamonds: each conditional splits TRUE/FALSE and a JOIN closes the pair.
+    static Workflow branching(int diamonds) {
+        Workflow w = workflow("branching-" + diamonds);
+        add(w, node("start", "START", Map.of()));
+        String prev = "start";
+        for (int i = 0; i < diamonds; i++) {
+            String cond = "if" + i;
+            add(w, node(cond, "CONDITIONAL", Map.of("condition", "status >= 200 && status < 300 || contains(name, 'x" + i + "')")));
+            add(w, node("t" + i, "JOIN", Map.of()));
+            add(w, node("f" + i, "JOIN", Map.of()));
+            add(w, node("j" + i, "JOIN", Map.of()));
+            edge(w, prev, cond, null);
+            edge(w, cond, "t" + i, "TRUE");
+            edge(w, cond, "f" + i, "FALSE");
+            edge(w, "t" + i, "j" + i, null);
+            edge(w, "f" + i, "j" + i, null);
+            prev = "j" + i;
+        }
+        add(w, node("end", "END", Map.of()));
+        edge(w, prev, "end", null);
+        return w;
+    }
+
+    // Wide fan-out/fan-in layers, exercising the scheduler and context forks/joins.
+    static Workflow large(int layers, int width) {
+        Workflow w = workflow("large-" + layers + "x" + width);
+        add(w, node("start", "START", Map.of()));
+        String prev = "start";
+        for (int l = 0; l < layers; l++) {
+            String join = "join" + l;
+            add(w, node(join, "JOIN", Map.of()));
+            for (int k = 0; k < width; k++) {
+                String id = "n" + l + "_" + k;
+                add(w, node(id, "JOIN", Map.of()));
+                edge(w, prev, id, null);
+                edge(w, id, join, null);
+            }
+            prev = join;
+        }
+        add(w, node("end", "END", Map.of()));
+        edge(w, prev, "end", null);
+        return w;
+    }
+
+    static Node node(String id, String type, Map<String, Object> config) {
+        Node n = new Node();
+        n.id = id;
+        n.type = type;
+        n.data = new HashMap<>();
+        n.data.put("label", id);
+        n.data.put("config", new HashMap<>(config));
+        return n;
+    }
+
+    private static Workflow workflow(String name) {
+        Workflow w = new Workflow();
+        w.name = name;
+        w.nodes = new ArrayList<>();
+        w.edges = new ArrayList<>();
+        return w;
+    }
+
+    private static void add(Workflow w, Node n) {
+        w.nodes.add(n);
+    }
+
+    private static void edge(Workflow w, String source, String target, String label) {
+        Connection c = new Connection();
+        c.source = source;
+        c.target = target;
+        c.label = label;
+        w.edges.add(c);
+    }
+
+    static List<Map<String, Object>> items(int count) {
+        List<Map<String, Object>> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("id", i);
+            item.put("price", i * 1.5);
+            item.put("name", "item" + i);
+            item.put("tags", List.of("a", "b"));
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -2,33 +2,215 @@ package com.miniflow;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.miniflow.batch.BatchRunner;
 import com.miniflow.model.Workflow;
+import com.miniflow.schedule.Scheduler;
+import com.miniflow.core.RunResult;
+import com.miniflow.core.EngineExecutors;
+import com.miniflow.core.PlanCache;
+import com.miniflow.core.WorkflowPlan;
 import com.miniflow.core.WorkflowRunner;
+import com.miniflow.events.EventRenderer;
+import com.miniflow.events.EventSink;
+import com.miniflow.events.EventSinks;
+import com.miniflow.journal.RunJournal;
+import com.miniflow.memo.MemoStore;
+import com.miniflow.metrics.Metrics;
+import com.miniflow.metrics.MetricsServer;
+import com.miniflow.server.EngineServer;
 import com.miniflow.context.ExecutionContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.Set;
 
 public class Main {
     public static void main(String[] args) {
         ObjectMapper mapper = new ObjectMapper();
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        Scanner scanner = new Scanner(System.in);
 
         try {
-            StringBuilder sb = new StringBuilder();
-            while (scanner.hasNextLine()) sb.append(scanner.nextLine());
-            String jsonInput = sb.toString();
-            if (!jsonInput.isBlank()) {
-                Workflow workflow = mapper.readValue(jsonInput, Workflow.class);
-                new WorkflowRunner().run(workflow);
-
-                ExecutionContext ctx = ExecutionContext.getInstance();
-                Object he = ctx.getVariable("__workflowHasErrors");
-                boolean hasErrors = he instanceof Boolean b ? b : (he != null && Boolean.parseBoolean(String.valueOf(he)));
-
-                System.out.println(hasErrors ? "{\"status\": \"FINISHED_WITH_ERRORS\"}" : "{\"status\": \"FINISHED\"}");
+            String socketPath = optionValue(args, "--socket");
+            if (socketPath != null || hasFlag(args, "--server")) {
+                MetricsServer metrics = metricsServer(mapper, args);
+                try {
+                    if (socketPath != null) new EngineServer(mapper).serveSocket(Path.of(socketPath));
+                    else new EngineServer(mapper).serve(System.in, System.out);
+                } finally {
+                    if (metrics != null) metrics.close();
+                }
+                return;
+            }
+
+            String schedule = optionValue(args, "--schedule");
+            if (schedule != null) {
+                MetricsServer metrics = metricsServer(mapper, args);
+                try {
+                    runScheduled(mapper, args, schedule);
+                } finally {
+                    if (metrics != null) metrics.close();
+                }
+                return;
             }
+
+            String batch = optionValue(args, "--batch");
+            if (batch != null) {
+                runBatch(mapper, args, batch);
+                return;
+            }
+
+            runOnce(mapper, args);
         } catch (Exception e) {
             System.err.println("CRITICAL_ERROR: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static void runOnce(ObjectMapper mapper, String[] args) throws Exception {
+        Scanner scanner = new Scanner(System.in);
+        StringBuilder sb = new StringBuilder();
+        while (scanner.hasNextLine()) sb.append(scanner.nextLine());
+        String jsonInput = sb.toString();
+        if (jsonInput.isBlank()) return;
+
+        Workflow workflow = mapper.readValue(jsonInput, Workflow.class);
+        WorkflowPlan plan = PlanCache.shared().get(workflow);
+        RunResult result;
+        try (EventSink events = eventSink(args)) {
+            result = new WorkflowRunner(events, EngineExecutors.defaultParallelism(), memoStore(args))
+                .run(plan, new ExecutionContext(), journal(args, plan));
+        }
+
+        System.out.println("{\"status\": \"" + result.getStatus() + "\"}");
+    }
+
+    // --batch <file.jsonl|-> runs the workflow once per record. The workflow comes from --workflow or,
+    // when the records are not on stdin, from stdin. --out, --concurrency, --ordered and --select
+    // shape the result stream; the summary goes to stderr.
+    private static void runBatch(ObjectMapper mapper, String[] args, String input) throws Exception {
+        String workflowFile = optionValue(args, "--workflow");
+        boolean recordsOnStdin = input.equals("-");
+        if (workflowFile == null && recordsOnStdin) {
+            throw new IllegalArgumentException("--batch - requiere --workflow <archivo>");
+        }
+        Workflow workflow = workflowFile != null
+            ? mapper.readValue(Path.of(workflowFile).toFile(), Workflow.class)
+            : mapper.readValue(System.in, Workflow.class);
+        WorkflowPlan plan = PlanCache.shared().get(workflow);
+
+        String concurrency = optionValue(args, "--concurrency");
+        String select = optionValue(args, "--select");
+        String outFile = optionValue(args, "--out");
+        Set<String> selected = new LinkedHashSet<>();
+        if (select != null) {
+            Arrays.stream(select.split(",")).map(String::trim).filter(v -> !v.isEmpty()).forEach(selected::add);
+        }
+
+        BatchRunner.Summary summary;
+        try (EventSink events = batchEventSink(args);
+             BufferedReader in = recordsOnStdin
+                 ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                 : Files.newBufferedReader(Path.of(input), StandardCharsets.UTF_8)) {
+            OutputStream out = outFile != null ? Files.newOutputStream(Path.of(outFile)) : System.out;
+            WorkflowRunner runner = new WorkflowRunner(events, EngineExecutors.defaultParallelism(), memoStore(args));
+            summary = new BatchRunner(runner, mapper,
+                concurrency != null ? Integer.parseInt(concurrency.trim()) : EngineExecutors.defaultParallelism(),
+                hasFlag(args, "--ordered"), selected)
+                .run(plan, in, out, outFile != null);
+        }
+
+        System.err.printf(Locale.ROOT, "Lote: %d registros (%d ok, %d con errores, %d invalidos) en %.1f s, %.1f registros/s%n",
+            summary.records(), summary.finished(), summary.withErrors(), summary.invalid(),
+            summary.durationMs() / 1000.0, summary.recordsPerSecond());
+    }
+
+    // Per-record events would interleave with the results, so batch runs only emit them when a
+    // destination is given explicitly.
+    private static EventSink batchEventSink(String[] args) throws IOException {
+        if (optionValue(args, "--events-file") == null && optionValue(args, "--events-socket") == null) {
+            return event -> { };
+        }
+        return eventSink(args);
+    }
+
+    // --schedule a.json,b.json keeps the engine resident and runs each workflow from its "triggers"
+    // until the process is stopped.
+    private static void runScheduled(ObjectMapper mapper, String[] args, String files) throws Exception {
+        Scheduler scheduler = Scheduler.shared();
+        EventSink events = eventSink(args);
+        for (String file : files.split(",")) {
+            if (file.isBlank()) continue;
+            Workflow workflow = mapper.readValue(Path.of(file.trim()).toFile(), Workflow.class);
+            List<String> jobs = scheduler.scheduleAll(PlanCache.shared().get(workflow), workflow.triggers, job -> events, null);
+            System.err.println("Programado: " + String.join(", ", jobs));
+        }
+
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scheduler.close();
+            events.close();
+            main.interrupt();
+        }));
+        try {
+            Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    // --metrics-port N exposes /metrics and /metrics.json on 127.0.0.1 while the daemon runs.
+    private static MetricsServer metricsServer(ObjectMapper mapper, String[] args) throws IOException {
+        String port = optionValue(args, "--metrics-port");
+        if (port == null) return null;
+        return MetricsServer.start(Integer.parseInt(port.trim()), Metrics.shared(), mapper);
+    }
+
+    // --journal DIR records the run so that --resume <runId|latest> can continue it after a failure.
+    private static RunJournal journal(String[] args, WorkflowPlan plan) throws IOException {
+        String dir = optionValue(args, "--journal");
+        String resume = optionValue(args, "--resume");
+        if (dir == null && resume == null) return null;
+        Path journalDir = dir != null ? Path.of(dir) : RunJournal.defaultDir();
+        return resume != null ? RunJournal.resume(journalDir, resume, plan.getName()) : RunJournal.create(journalDir, plan.getName());
+    }
+
+    // --memo replays unchanged nodes from ~/.miniflow/memo; --memo-dir picks another store.
+    private static MemoStore memoStore(String[] args) {
+        String dir = optionValue(args, "--memo-dir");
+        if (dir != null) return MemoStore.open(Path.of(dir));
+        return hasFlag(args, "--memo") ? MemoStore.shared() : null;
+    }
+
+    // --events text|ndjson picks the format; --events-file and --events-socket add destinations.
+    private static EventSink eventSink(String[] args) throws IOException {
+        EventRenderer renderer = EventRenderer.forFormat(optionValue(args, "--events"));
+        List<EventSink> sinks = new ArrayList<>();
+        String file = optionValue(args, "--events-file");
+        String socket = optionValue(args, "--events-socket");
+        if (file != null) sinks.add(EventSinks.file(Path.of(file), renderer));
+        if (socket != null) sinks.add(EventSinks.socket(socket, renderer));
+        if (sinks.isEmpty() || hasFlag(args, "--events-stdout")) sinks.add(EventSinks.stdout(renderer));
+        return EventSinks.fanOut(sinks);
+    }
+
+    private static boolean hasFlag(String[] args, String flag) {
+        for (String a : args) if (a.equals(flag)) return true;
+        return false;
+    }
+
+    private static String optionValue(String[] args, String option) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals(option) && i + 1 < args.length) return args[i + 1];
+            if (args[i].startsWith(option + "=")) return args[i].substring(option.length() + 1);
+        }
+        return null;
+    }
+}
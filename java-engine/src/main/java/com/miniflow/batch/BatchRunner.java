@@ -0,0 +1,207 @@
+package com.miniflow.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.EngineExecutors;
+import com.miniflow.core.RunResult;
+import com.miniflow.core.WorkflowPlan;
+import com.miniflow.core.WorkflowRunner;
+import com.miniflow.events.BatchingWriter;
+import com.miniflow.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs one compiled plan once per JSONL record. Each record's fields seed a fresh context; at most
+// `concurrency` records are in flight, and the reader blocks until one finishes, so a large input
+// never piles up in memory. In ordered mode a slot is only released once its line has been written,
+// which bounds the reorder buffer by the same limit.
+public final class BatchRunner {
+    public record Summary(long records, long finished, long withErrors, long invalid, long durationMs) {
+        public double recordsPerSecond() {
+            return durationMs == 0 ? records : records * 1000.0 / durationMs;
+        }
+    }
+
+    private final WorkflowRunner runner;
+    private final ObjectMapper mapper;
+    private final int concurrency;
+    private final boolean ordered;
+    private final Set<String> select;
+
+    // select limits the context variables copied into each result; empty means all but "__" keys.
+    public BatchRunner(WorkflowRunner runner, ObjectMapper mapper, int concurrency, boolean ordered, Set<String> select) {
+        this.runner = runner;
+        this.mapper = mapper;
+        this.concurrency = Math.max(1, concurrency);
+        this.ordered = ordered;
+        this.select = select;
+    }
+
+    public Summary run(WorkflowPlan plan, BufferedReader in, OutputStream out, boolean closeOut) throws IOException {
+        long start = System.nanoTime();
+        Semaphore slots = new Semaphore(concurrency);
+        AtomicLong finished = new AtomicLong();
+        AtomicLong withErrors = new AtomicLong();
+        AtomicLong invalid = new AtomicLong();
+        Map<Long, byte[]> reorder = new HashMap<>();
+        long[] nextOut = {0};
+        long index = 0;
+
+        try (BatchingWriter<byte[]> writer = new BatchingWriter<>(out, closeOut, BatchRunner::renderLine, "miniflow-batch-out")) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                acquire(slots, 1);
+                long i = index++;
+                String record = line;
+                EngineExecutors.nodePool().execute(() -> {
+                    // Every record yields a line, whatever it threw, so its slot and its place in the
+                    // output order are always given back.
+                    byte[] result;
+                    try {
+                        result = runRecord(plan, i, record, finished, withErrors, invalid);
+                    } catch (Throwable e) {
+                        result = failed(i, e, withErrors);
+                    }
+                    if (!ordered) {
+                        try {
+                            writer.submit(result);
+                        } finally {
+                            slots.release();
+                        }
+                        return;
+                    }
+                    synchronized (reorder) {
+                        reorder.put(i, result);
+                        byte[] next;
+                        while ((next = reorder.remove(nextOut[0])) != null) {
+                            try {
+                                writer.submit(next);
+                            } finally {
+                                nextOut[0]++;
+                                slots.release();
+                            }
+                        }
+                    }
+                });
+            }
+            acquire(slots, concurrency);
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        return new Summary(index, finished.get(), withErrors.get(), invalid.get(), elapsed);
+    }
+
+    private byte[] runRecord(WorkflowPlan plan, long index, String line, AtomicLong finished, AtomicLong withErrors,
+                             AtomicLong invalid) {
+        ObjectNode result = mapper.createObjectNode();
+        result.put("index", index);
+        JsonNode record;
+        try {
+            record = mapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            invalid.incrementAndGet();
+            Metrics.shared().increment("miniflow_batch_records_total", "status", "INVALID");
+            result.put("status", "INVALID");
+            result.put("error", "JSON invalido: " + e.getOriginalMessage());
+            return bytes(result);
+        }
+        if (record.hasNonNull("id")) result.set("id", record.get("id"));
+
+        try {
+            RunResult run = runner.run(plan, seed(record, index));
+            (run.hasErrors() ? withErrors : finished).incrementAndGet();
+            Metrics.shared().increment("miniflow_batch_records_total", "status", run.getStatus());
+            result.put("status", run.getStatus());
+            result.put("durationMs", run.getDurationMs());
+            Object error = run.getContext().getVariable("__lastError");
+            if (run.hasErrors() && error != null) result.put("error", String.valueOf(error));
+            result.set("vars", vars(run.getContext()));
+        } catch (RuntimeException e) {
+            withErrors.incrementAndGet();
+            Metrics.shared().increment("miniflow_batch_records_total", "status", "FINISHED_WITH_ERRORS");
+            result.put("status", "FINISHED_WITH_ERRORS");
+            result.put("error", message(e));
+        }
+        return bytes(result);
+    }
+
+    // Built by hand so it cannot fail the way the record did.
+    private static byte[] failed(long index, Throwable e, AtomicLong withErrors) {
+        withErrors.incrementAndGet();
+        Metrics.shared().increment("miniflow_batch_records_total", "status", "FINISHED_WITH_ERRORS");
+        String error = new String(JsonStringEncoder.getInstance().quoteAsString(message(e)));
+        return ("{\"index\":" + index + ",\"status\":\"FINISHED_WITH_ERRORS\",\"error\":\"" + error + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String message(Throwable e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    // Object records become one variable per field; anything else is available as "record".
+    private ExecutionContext seed(JsonNode record, long index) {
+        ExecutionContext context = new ExecutionContext();
+        if (record.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = record.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> f = fields.next();
+                context.setVariable(f.getKey(), mapper.convertValue(f.getValue(), Object.class));
+            }
+        } else {
+            context.setVariable("record", mapper.convertValue(record, Object.class));
+        }
+        context.setVariable("__batchIndex", index);
+        return context;
+    }
+
+    private ObjectNode vars(ExecutionContext context) {
+        ObjectNode vars = mapper.createObjectNode();
+        for (Map.Entry<String, Object> e : new TreeMap<>(context.snapshot()).entrySet()) {
+            String key = e.getKey();
+            if (select.isEmpty() ? key.startsWith("__") : !select.contains(key)) continue;
+            try {
+                vars.set(key, mapper.valueToTree(e.getValue()));
+            } catch (IllegalArgumentException ex) {
+                vars.put(key, String.valueOf(e.getValue()));
+            }
+        }
+        return vars;
+    }
+
+    private byte[] bytes(JsonNode node) {
+        try {
+            return mapper.writeValueAsBytes(node);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void renderLine(byte[] line, OutputStream out) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    private static void acquire(Semaphore slots, int permits) throws IOException {
+        try {
+            slots.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch interrumpido", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.miniflow.context;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// What one node read from and wrote to its context. A key counts as read only if the node looked
+// at it before writing it, so values a node produces for itself are not treated as inputs.
+public final class AccessLog {
+    private final Map<String, Object> reads = new LinkedHashMap<>();
+    private final Map<String, Object> writes = new LinkedHashMap<>();
+
+    synchronized void read(String key, Object value) {
+        if (!writes.containsKey(key) && !reads.containsKey(key)) reads.put(key, value);
+    }
+
+    synchronized void write(String key, Object value) {
+        writes.put(key, value);
+    }
+
+    // Values are as first seen; null means the key was absent.
+    public synchronized Map<String, Object> reads() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(reads));
+    }
+
+    // Last value written per key; null means the key was removed.
+    public synchronized Map<String, Object> writes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(writes));
+    }
+}
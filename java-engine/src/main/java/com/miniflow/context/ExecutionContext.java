@@ -1,28 +1,311 @@
 package com.miniflow.context;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+// Variables are stored by slot (see Slots) in pages of 64. A page keeps parallel lanes: the kind of
+// each slot, numbers unboxed in `bits` (doubles as raw bits) and any other value in `refs`. Forks
+// share pages and copy one only on their first write to it. A context is used by one node at a
+// time; the scheduler hands it from thread to thread.
 public class ExecutionContext {
-    private static ExecutionContext instance;
-    private final Map<String, Object> variables = new HashMap<>();
+    private static final int PAGE_BITS = 6;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
 
-    private ExecutionContext() {}
+    private static final byte ABSENT = 0;
+    private static final byte REF = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
 
-    public static ExecutionContext getInstance() {
-        if (instance == null) instance = new ExecutionContext();
-        return instance;
+    private static final class Page {
+        final byte[] kinds = new byte[PAGE_SIZE];
+        final long[] bits = new long[PAGE_SIZE];
+        final Object[] refs = new Object[PAGE_SIZE];
+
+        Page copy() {
+            Page p = new Page();
+            System.arraycopy(kinds, 0, p.kinds, 0, PAGE_SIZE);
+            System.arraycopy(bits, 0, p.bits, 0, PAGE_SIZE);
+            System.arraycopy(refs, 0, p.refs, 0, PAGE_SIZE);
+            return p;
+        }
+
+        Object value(int i) {
+            return switch (kinds[i]) {
+                case REF -> refs[i];
+                case INT -> Integer.valueOf((int) bits[i]);
+                case LONG -> Long.valueOf(bits[i]);
+                case DOUBLE -> Double.valueOf(Double.longBitsToDouble(bits[i]));
+                default -> null;
+            };
+        }
+    }
+
+    private final ExecutionContext parent;
+    private final BitSet written = new BitSet();
+    private Set<String> writtenNames;
+    private volatile Page[] pages;
+    private boolean[] owned;
+    // Names that got no slot; shared with forks the same way as pages. A null value removes the key.
+    private volatile Map<String, Object> overflow;
+    private boolean overflowOwned;
+    private volatile OutputListener outputListener = OutputListener.NONE;
+    private volatile AccessLog accessLog;
+
+    public ExecutionContext() {
+        this(null, new Page[0], Map.of());
+    }
+
+    private ExecutionContext(ExecutionContext parent, Page[] pages, Map<String, Object> overflow) {
+        this.parent = parent;
+        this.pages = pages;
+        this.owned = new boolean[pages.length];
+        this.overflow = overflow;
     }
 
     public void setVariable(String key, Object value) {
-        variables.put(key, value);
+        int slot = Slots.of(key);
+        if (slot < 0) putOverflow(key, value);
+        else putBoxed(slot, value);
+        AccessLog log = accessLog;
+        if (log != null) log.write(key, value);
     }
 
     public Object getVariable(String key) {
-        return variables.get(key);
+        int slot = Slots.of(key);
+        Object value = slot < 0 ? overflow.get(key) : value(slot);
+        AccessLog log = accessLog;
+        if (log != null) log.read(key, value);
+        return value;
+    }
+
+    public void set(Variable v, Object value) {
+        if (v.slot() < 0) putOverflow(v.name(), value);
+        else putBoxed(v.slot(), value);
+        AccessLog log = accessLog;
+        if (log != null) log.write(v.name(), value);
+    }
+
+    public Object get(Variable v) {
+        Object value = v.slot() < 0 ? overflow.get(v.name()) : value(v.slot());
+        AccessLog log = accessLog;
+        if (log != null) log.read(v.name(), value);
+        return value;
+    }
+
+    public void setInt(Variable v, int value) {
+        if (v.slot() < 0 || accessLog != null) set(v, value);
+        else store(v.slot(), INT, value, null);
+    }
+
+    public void setLong(Variable v, long value) {
+        if (v.slot() < 0 || accessLog != null) set(v, value);
+        else store(v.slot(), LONG, value, null);
+    }
+
+    public void setDouble(Variable v, double value) {
+        if (v.slot() < 0 || accessLog != null) set(v, value);
+        else store(v.slot(), DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    // Numeric reads straight from the lanes; `absent` when the variable is unset or not a Number.
+    public long getLong(Variable v, long absent) {
+        if (v.slot() < 0 || accessLog != null) return get(v) instanceof Number n ? n.longValue() : absent;
+        Page page = page(v.slot());
+        if (page == null) return absent;
+        int i = v.slot() & PAGE_MASK;
+        return switch (page.kinds[i]) {
+            case INT, LONG -> page.bits[i];
+            case DOUBLE -> (long) Double.longBitsToDouble(page.bits[i]);
+            case REF -> page.refs[i] instanceof Number n ? n.longValue() : absent;
+            default -> absent;
+        };
+    }
+
+    public double getDouble(Variable v, double absent) {
+        if (v.slot() < 0 || accessLog != null) return get(v) instanceof Number n ? n.doubleValue() : absent;
+        Page page = page(v.slot());
+        if (page == null) return absent;
+        int i = v.slot() & PAGE_MASK;
+        return switch (page.kinds[i]) {
+            case INT, LONG -> page.bits[i];
+            case DOUBLE -> Double.longBitsToDouble(page.bits[i]);
+            case REF -> page.refs[i] instanceof Number n ? n.doubleValue() : absent;
+            default -> absent;
+        };
+    }
+
+    public boolean has(Variable v) {
+        if (v.slot() < 0 || accessLog != null) return get(v) != null;
+        Page page = page(v.slot());
+        return page != null && page.kinds[v.slot() & PAGE_MASK] != ABSENT;
+    }
+
+    // Records reads and writes until stopTracking; forks and joins do not inherit the log.
+    public AccessLog startTracking() {
+        AccessLog log = new AccessLog();
+        accessLog = log;
+        return log;
+    }
+
+    public void stopTracking() {
+        accessLog = null;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new HashMap<>(overflow);
+        Page[] p = pages;
+        for (int index = 0; index < p.length; index++) {
+            Page page = p[index];
+            if (page == null) continue;
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                Object value = page.value(i);
+                if (value != null) out.put(Slots.name((index << PAGE_BITS) | i), value);
+            }
+        }
+        return Collections.unmodifiableMap(out);
+    }
+
+    public ExecutionContext getParent() {
+        return parent;
+    }
+
+    public OutputListener getOutputListener() {
+        return outputListener;
+    }
+
+    public void setOutputListener(OutputListener outputListener) {
+        this.outputListener = outputListener == null ? OutputListener.NONE : outputListener;
+    }
+
+    // A child sees this context as it is now; later writes on either side stay private until merged.
+    public ExecutionContext fork() {
+        ExecutionContext child = share(this);
+        child.outputListener = outputListener;
+        return child;
+    }
+
+    // Merges branch contexts that forked from a common ancestor. The result starts from that ancestor
+    // and applies each branch's writes in list order, so on conflicting keys the last branch wins.
+    public static ExecutionContext join(List<ExecutionContext> branches) {
+        if (branches.isEmpty()) throw new IllegalArgumentException("Nothing to join");
+        if (branches.size() == 1) return branches.get(0);
+
+        ExecutionContext base = commonAncestor(branches);
+        ExecutionContext merged = base.share(base.parent);
+        merged.written.or(base.written);
+        if (base.writtenNames != null) merged.writtenNames = new HashSet<>(base.writtenNames);
+        merged.outputListener = base.outputListener;
+        for (ExecutionContext branch : branches) {
+            BitSet slots = new BitSet();
+            Set<String> names = new LinkedHashSet<>();
+            for (ExecutionContext c = branch; c != null && c != base; c = c.parent) {
+                slots.or(c.written);
+                if (c.writtenNames != null) names.addAll(c.writtenNames);
+            }
+            for (int s = slots.nextSetBit(0); s >= 0; s = slots.nextSetBit(s + 1)) merged.copy(branch, s);
+            for (String key : names) merged.putOverflow(key, branch.overflow.get(key));
+        }
+        return merged;
+    }
+
+    private static ExecutionContext commonAncestor(List<ExecutionContext> branches) {
+        List<ExecutionContext> chain = new ArrayList<>();
+        for (ExecutionContext c = branches.get(0); c != null; c = c.parent) chain.add(c);
+
+        int best = 0;
+        for (ExecutionContext branch : branches.subList(1, branches.size())) {
+            int found = chain.size() - 1;
+            for (ExecutionContext c = branch; c != null; c = c.parent) {
+                int i = chain.indexOf(c);
+                if (i >= 0) {
+                    found = i;
+                    break;
+                }
+            }
+            best = Math.max(best, found);
+        }
+        return chain.get(best);
+    }
+
+    // A new context over this one's current storage; from now on neither side writes it in place.
+    private synchronized ExecutionContext share(ExecutionContext parentOfNew) {
+        Arrays.fill(owned, false);
+        overflowOwned = false;
+        return new ExecutionContext(parentOfNew, pages.clone(), overflow);
+    }
+
+    private Page page(int slot) {
+        Page[] p = pages;
+        int index = slot >>> PAGE_BITS;
+        return index < p.length ? p[index] : null;
+    }
+
+    private Object value(int slot) {
+        Page page = page(slot);
+        return page == null ? null : page.value(slot & PAGE_MASK);
+    }
+
+    private void putBoxed(int slot, Object value) {
+        if (value == null) store(slot, ABSENT, 0, null);
+        else if (value instanceof Integer n) store(slot, INT, n, null);
+        else if (value instanceof Long n) store(slot, LONG, n, null);
+        else if (value instanceof Double n) store(slot, DOUBLE, Double.doubleToRawLongBits(n), null);
+        else store(slot, REF, 0, value);
+    }
+
+    private synchronized void copy(ExecutionContext from, int slot) {
+        Page source = from.page(slot);
+        int i = slot & PAGE_MASK;
+        if (source == null) store(slot, ABSENT, 0, null);
+        else store(slot, source.kinds[i], source.bits[i], source.refs[i]);
+    }
+
+    private synchronized void store(int slot, byte kind, long bits, Object ref) {
+        if (parent != null) written.set(slot);
+        int index = slot >>> PAGE_BITS;
+        Page[] p = pages;
+        if (kind == ABSENT && (index >= p.length || p[index] == null)) return;
+        if (index >= p.length) {
+            p = Arrays.copyOf(p, Math.max(index + 1, p.length * 2));
+            owned = Arrays.copyOf(owned, p.length);
+        }
+        Page page = p[index];
+        if (page == null) {
+            page = new Page();
+            p[index] = page;
+            owned[index] = true;
+        } else if (!owned[index]) {
+            page = page.copy();
+            p[index] = page;
+            owned[index] = true;
+        }
+        int i = slot & PAGE_MASK;
+        page.bits[i] = bits;
+        page.refs[i] = ref;
+        page.kinds[i] = kind;
+        pages = p;
     }
 
-    public void clear() {
-        variables.clear();
+    private synchronized void putOverflow(String key, Object value) {
+        if (parent != null) {
+            if (writtenNames == null) writtenNames = new HashSet<>();
+            writtenNames.add(key);
+        }
+        if (!overflowOwned) {
+            overflow = new HashMap<>(overflow);
+            overflowOwned = true;
+        }
+        if (value == null) overflow.remove(key);
+        else overflow.put(key, value);
     }
 }
@@ -0,0 +1,121 @@
+package com.miniflow.context;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Text that lives in a spill file instead of on the heap (see SpillBuffer): the bytes from `offset`
+// to the end of the file. They are streamed or memory-mapped on demand; wherever the value is turned
+// into a string (templates, conditions, JSON output) it is materialized in full. The file is deleted
+// once the value is unreachable.
+public final class LargeValue {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final Path file;
+    private final long offset;
+    private final long size;
+    private final Charset charset;
+    private volatile String digest;
+
+    LargeValue(Path file, long offset, long size, Charset charset) {
+        this.file = file;
+        this.offset = offset;
+        this.size = size;
+        this.charset = charset;
+        CLEANER.register(this, new Delete(file));
+    }
+
+    private record Delete(Path file) implements Runnable {
+        public void run() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public Charset charset() {
+        return charset;
+    }
+
+    public InputStream stream() throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            in.skipNBytes(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    // A read-only mapping of `length` bytes starting at `from`; it stays valid after this returns.
+    public ByteBuffer slice(long from, int length) throws IOException {
+        if (from < 0 || length < 0 || from + length > size) {
+            throw new IndexOutOfBoundsException("Slice " + from + "+" + length + " of " + size + " bytes");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset + from, length);
+        }
+    }
+
+    // The first `maxBytes` decoded, for previews; a character cut at the end is dropped.
+    public String head(int maxBytes) {
+        try {
+            ByteBuffer bytes = slice(0, (int) Math.min(size, Math.max(0, maxBytes)));
+            String text = charset.decode(bytes).toString();
+            return size > maxBytes && text.endsWith("\uFFFD") ? text.substring(0, text.length() - 1) : text;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @JsonValue
+    public String text() {
+        if (size > Integer.MAX_VALUE) throw new IllegalStateException("Value too large to materialize: " + size + " bytes");
+        try {
+            return charset.decode(slice(0, (int) size)).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // SHA-256 of the bytes, computed once.
+    public String digest() {
+        String d = digest;
+        if (d != null) return d;
+        try (InputStream in = stream()) {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[64 * 1024];
+            for (int n; (n = in.read(buf)) > 0; ) sha.update(buf, 0, n);
+            d = HexFormat.of().formatHex(sha.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest = d;
+        return d;
+    }
+
+    @Override
+    public String toString() {
+        return text();
+    }
+}
@@ -0,0 +1,11 @@
+package com.miniflow.context;
+
+import com.miniflow.model.Node;
+
+// Receives output lines as a node produces them, for nodes that opt into live streaming.
+public interface OutputListener {
+    OutputListener NONE = (node, stream, line) -> {
+    };
+
+    void line(Node node, String stream, String line);
+}
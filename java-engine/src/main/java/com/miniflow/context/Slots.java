@@ -0,0 +1,44 @@
+package com.miniflow.context;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide numbering of variable names; contexts index their storage by it. The table only
+// grows, so it is capped by -Dminiflow.context.slots (4096): later names get -1 and contexts keep
+// them in a plain map instead.
+final class Slots {
+    private static final int LIMIT = Math.max(64, Integer.getInteger("miniflow.context.slots", 4096));
+    private static final Map<String, Integer> INDEX = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[64];
+    private static volatile boolean full;
+    private static int count;
+
+    private Slots() {
+    }
+
+    static int of(String name) {
+        Integer slot = INDEX.get(name);
+        if (slot != null) return slot;
+        if (full) return -1;
+        return intern(name);
+    }
+
+    static String name(int slot) {
+        return names[slot];
+    }
+
+    private static synchronized int intern(String name) {
+        Integer slot = INDEX.get(name);
+        if (slot != null) return slot;
+        if (count >= LIMIT) {
+            full = true;
+            return -1;
+        }
+        String[] n = names;
+        if (count == n.length) names = n = Arrays.copyOf(n, n.length * 2);
+        n[count] = name;
+        INDEX.put(name, count);
+        return count++;
+    }
+}
@@ -0,0 +1,188 @@
+package com.miniflow.context;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Collects bytes in memory up to -Dminiflow.spill.threshold (256 KiB) and moves them to a file past
+// it, so a large response or process output costs the threshold in heap rather than its own size.
+// Files go to a per-process directory under -Dminiflow.spill.dir (the system temp directory by
+// default) that is removed at exit.
+public final class SpillBuffer extends OutputStream {
+    private static final long THRESHOLD = Math.max(0, Long.getLong("miniflow.spill.threshold", 256 * 1024));
+    private static volatile Path directory;
+
+    private final Charset charset;
+    private final long threshold;
+    private byte[] memory = new byte[0];
+    private int used;
+    private Path file;
+    private OutputStream out;
+    private long size;
+    private boolean finished;
+
+    public SpillBuffer(Charset charset) {
+        this(charset, THRESHOLD);
+    }
+
+    public SpillBuffer(Charset charset, long threshold) {
+        this.charset = charset == null ? StandardCharsets.UTF_8 : charset;
+        this.threshold = Math.min(Integer.MAX_VALUE - 8, Math.max(0, threshold));
+    }
+
+    public static long threshold() {
+        return THRESHOLD;
+    }
+
+    // A String when the content fits under the threshold, otherwise a LargeValue over the same bytes.
+    public static Object read(InputStream in, Charset charset) throws IOException {
+        try (SpillBuffer buffer = new SpillBuffer(charset)) {
+            in.transferTo(buffer);
+            return buffer.finish();
+        }
+    }
+
+    public static Object of(byte[] bytes, Charset charset) throws IOException {
+        if (bytes.length <= THRESHOLD) return new String(bytes, charset == null ? StandardCharsets.UTF_8 : charset);
+        try (SpillBuffer buffer = new SpillBuffer(charset)) {
+            buffer.write(bytes);
+            return buffer.finish();
+        }
+    }
+
+    public static Object of(String text) throws IOException {
+        if (text == null || (long) text.length() * 3 <= THRESHOLD) return text;
+        return of(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) throw new IOException("SpillBuffer already finished");
+        if (out == null && size + len > threshold) spill();
+        if (out != null) {
+            out.write(b, off, len);
+        } else {
+            if (used + len > memory.length) memory = Arrays.copyOf(memory, (int) Math.min(threshold, Math.max(used + len, memory.length * 2L)));
+            System.arraycopy(b, off, memory, used, len);
+            used += len;
+        }
+        size += len;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean spilled() {
+        return file != null;
+    }
+
+    // The content while it is still in memory, also after finish.
+    public byte[] toByteArray() {
+        if (file != null) throw new IllegalStateException("Content spilled to " + file);
+        return Arrays.copyOf(memory, used);
+    }
+
+    public Object finish() throws IOException {
+        return finishTail(Long.MAX_VALUE);
+    }
+
+    // Only the last `maxBytes`, as a String or a LargeValue. In UTF-8 the cut moves forward to the
+    // next character boundary.
+    public Object finishTail(long maxBytes) throws IOException {
+        if (finished) throw new IOException("SpillBuffer already finished");
+        finished = true;
+        long start = Math.max(0, size - Math.max(0, maxBytes));
+        if (file == null) {
+            int from = (int) start;
+            if (start > 0 && utf8()) while (from < used && (memory[from] & 0xC0) == 0x80) from++;
+            return new String(memory, from, used - from, charset);
+        }
+
+        out.close();
+        out = null;
+        if (start > 0 && utf8()) start = boundary(start);
+        if (size - start <= threshold) {
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - start));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                while (tail.hasRemaining() && channel.read(tail, start + tail.position()) >= 0) {
+                }
+            }
+            Files.deleteIfExists(file);
+            return new String(tail.array(), 0, tail.position(), charset);
+        }
+        return new LargeValue(file, start, size - start, charset);
+    }
+
+    // Drops a spill file nobody took ownership of.
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        if (!finished && file != null) Files.deleteIfExists(file);
+        finished = true;
+    }
+
+    private boolean utf8() {
+        return charset.equals(StandardCharsets.UTF_8);
+    }
+
+    private long boundary(long start) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(probe, start);
+        }
+        int i = 0;
+        while (i < probe.position() && (probe.get(i) & 0xC0) == 0x80) i++;
+        return start + i;
+    }
+
+    private void spill() throws IOException {
+        file = Files.createTempFile(directory(), "value-", ".bin");
+        out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        out.write(memory, 0, used);
+        memory = null;
+        used = 0;
+    }
+
+    private static Path directory() throws IOException {
+        Path d = directory;
+        if (d != null) return d;
+        synchronized (SpillBuffer.class) {
+            if (directory == null) {
+                String base = System.getProperty("miniflow.spill.dir");
+                Path root = base == null || base.isBlank() ? Path.of(System.getProperty("java.io.tmpdir")) : Path.of(base);
+                Files.createDirectories(root);
+                Path created = Files.createTempDirectory(root, "miniflow-spill-");
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(created), "miniflow-spill-cleanup"));
+                directory = created;
+            }
+            return directory;
+        }
+    }
+
+    private static void delete(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+}
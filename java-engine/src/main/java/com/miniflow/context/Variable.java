@@ -0,0 +1,41 @@
+package com.miniflow.context;
+
+// A variable name resolved to its context slot once, when a node, template or expression is
+// compiled, so reads and writes through it skip hashing the name.
+public final class Variable {
+    private final String name;
+    private final int slot;
+
+    private Variable(String name, int slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    public static Variable of(String name) {
+        if (name == null) throw new IllegalArgumentException("Variable name is null");
+        return new Variable(name, Slots.of(name));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Variable v && v.name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,190 @@
+package com.miniflow.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Every finished step hands a token to each successor. Ordinary steps run once per token; a JOIN
+// runs once all its incoming edges delivered, or as soon as no queued/running step can still reach
+// it. A branch halted by STOP_ON_FAIL poisons the joins downstream of it so they never fire.
+// Each token carries a scope: fan-out forks it per successor and a JOIN merges the arrived ones.
+class DagExecution<S> {
+    interface StepRunner<S> {
+        // Returns the successors to activate, or null to halt the branch.
+        int[] run(WorkflowPlan.Step step, S scope);
+    }
+
+    interface Scopes<S> {
+        S fork(S scope);
+
+        S join(List<S> arrivals);
+    }
+
+    private record Token<S>(int index, S scope) {}
+
+    private record Arrival<S>(int source, S scope) {}
+
+    private final WorkflowPlan plan;
+    private final Executor executor;
+    private final int maxParallelism;
+    private final StepRunner<S> runner;
+    private final Scopes<S> scopes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+    private final ArrayDeque<Token<S>> ready = new ArrayDeque<>();
+    private final int[] inflight;
+    private final BitSet active;
+    private final List<List<Arrival<S>>> joinArrivals = new ArrayList<>();
+    private final boolean[] joinPoisoned;
+    private final List<WorkflowPlan.Step> joins = new ArrayList<>();
+    private int running;
+    private Throwable failure;
+
+    DagExecution(WorkflowPlan plan, Executor executor, int maxParallelism, StepRunner<S> runner, Scopes<S> scopes) {
+        this.plan = plan;
+        this.executor = executor;
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.runner = runner;
+        this.scopes = scopes;
+        this.inflight = new int[plan.size()];
+        this.active = new BitSet(plan.size());
+        this.joinPoisoned = new boolean[plan.size()];
+        for (int i = 0; i < plan.size(); i++) {
+            if (plan.getStep(i).isJoin()) joins.add(plan.getStep(i));
+            joinArrivals.add(null);
+        }
+    }
+
+    void run(S rootScope) {
+        run(plan.getStart().index, rootScope);
+    }
+
+    // Starts from any step; a FOREACH body runs as its own execution rooted at the loop node.
+    void run(int start, S rootScope) {
+        lock.lock();
+        try {
+            inflight[start]++;
+            active.set(start);
+            running = 1;
+        } finally {
+            lock.unlock();
+        }
+
+        // The calling thread is a worker too, so a linear workflow never leaves it.
+        work(new Token<>(start, rootScope));
+
+        lock.lock();
+        try {
+            while (running > 0 || !ready.isEmpty()) idle.awaitUninterruptibly();
+        } finally {
+            lock.unlock();
+        }
+
+        if (failure instanceof RuntimeException re) throw re;
+        if (failure instanceof Error err) throw err;
+    }
+
+    private void work(Token<S> first) {
+        Token<S> next = first;
+        while (next != null) {
+            WorkflowPlan.Step step = plan.getStep(next.index());
+            int[] successors = null;
+            Throwable thrown = null;
+            try {
+                successors = runner.run(step, next.scope());
+            } catch (Throwable t) {
+                thrown = t;
+            }
+            next = complete(step, next.scope(), successors, thrown);
+        }
+    }
+
+    private Token<S> complete(WorkflowPlan.Step step, S scope, int[] successors, Throwable thrown) {
+        lock.lock();
+        try {
+            running--;
+            if (--inflight[step.index] == 0) active.clear(step.index);
+
+            if (thrown != null && failure == null) failure = thrown;
+            if (failure != null) {
+                ready.clear();
+            } else if (successors == null) {
+                poisonJoinsReachableFrom(step.index);
+            } else {
+                boolean fanOut = successors.length > 1;
+                for (int s : successors) deliver(step.index, s, fanOut ? scopes.fork(scope) : scope);
+            }
+            releaseStalledJoins();
+
+            Token<S> mine = null;
+            if (!ready.isEmpty() && running < maxParallelism) {
+                mine = ready.poll();
+                running++;
+            }
+            while (!ready.isEmpty() && running < maxParallelism) {
+                Token<S> token = ready.poll();
+                running++;
+                executor.execute(() -> work(token));
+            }
+
+            if (running == 0 && ready.isEmpty()) idle.signalAll();
+            return mine;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver(int source, int target, S scope) {
+        WorkflowPlan.Step step = plan.getStep(target);
+        if (!step.isJoin()) {
+            markQueued(target, scope);
+            return;
+        }
+        if (joinPoisoned[target]) return;
+
+        List<Arrival<S>> arrivals = joinArrivals.get(target);
+        if (arrivals == null) {
+            arrivals = new ArrayList<>(step.inDegree);
+            joinArrivals.set(target, arrivals);
+        }
+        arrivals.add(new Arrival<>(source, scope));
+        if (arrivals.size() >= step.inDegree) fireJoin(target);
+    }
+
+    private void releaseStalledJoins() {
+        for (WorkflowPlan.Step join : joins) {
+            int j = join.index;
+            if (joinArrivals.get(j) == null || joinPoisoned[j]) continue;
+            if (!active.intersects(join.reachers)) fireJoin(j);
+        }
+    }
+
+    private void poisonJoinsReachableFrom(int index) {
+        for (WorkflowPlan.Step join : joins) {
+            if (join.reachers.get(index)) joinPoisoned[join.index] = true;
+        }
+    }
+
+    // Arrivals merge in source-step order so the result does not depend on thread timing.
+    private void fireJoin(int join) {
+        List<Arrival<S>> arrivals = joinArrivals.get(join);
+        joinArrivals.set(join, null);
+        arrivals.sort(Comparator.comparingInt(Arrival::source));
+
+        List<S> branchScopes = new ArrayList<>(arrivals.size());
+        for (Arrival<S> a : arrivals) branchScopes.add(a.scope());
+        markQueued(join, scopes.join(branchScopes));
+    }
+
+    private void markQueued(int index, S scope) {
+        ready.add(new Token<>(index, scope));
+        inflight[index]++;
+        active.set(index);
+    }
+}
@@ -0,0 +1,43 @@
+package com.miniflow.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class EngineExecutors {
+    private static final ExecutorService NODE_POOL = createNodePool();
+
+    private EngineExecutors() {}
+
+    public static ExecutorService nodePool() {
+        return NODE_POOL;
+    }
+
+    public static int defaultParallelism() {
+        String configured = System.getProperty("miniflow.maxParallelism");
+        if (configured != null) {
+            try {
+                return Math.max(1, Integer.parseInt(configured.trim()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    // Virtual threads when the runtime has them (21+), otherwise a cached pool of daemon threads.
+    // Parallelism is capped per run by the scheduler, never by the pool, so nested waits cannot starve it.
+    private static ExecutorService createNodePool() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "miniflow-node-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
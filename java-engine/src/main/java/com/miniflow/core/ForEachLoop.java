@@ -0,0 +1,164 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.Variable;
+import com.miniflow.expr.Expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs a FOREACH body once per element of a context collection. At most `parallelism` workers
+// exist; each claims the next chunk of indexes and runs them one after another, so a long list
+// costs a handful of tasks rather than one per element. Every element runs in its own fork of the
+// loop's context with `item` and `index` set; only the collected outputs come back out.
+final class ForEachLoop {
+    interface Body {
+        // Runs the body for one element and returns the scope it ended in, or throws on failure.
+        ExecutionContext run(ExecutionContext scope) throws Exception;
+    }
+
+    private record Failure(int index, String error) {
+    }
+
+    private static final Variable COUNT = Variable.of("foreachCount");
+    private static final Variable FAILED = Variable.of("foreachFailed");
+    private static final Variable ERRORS = Variable.of("foreachErrors");
+
+    private final Expression items;
+    private final Variable itemVar;
+    private final Variable indexVar;
+    private final List<Variable> outputs;
+    private final Variable resultKey;
+    private final int parallelism;
+    private final int chunkSize;
+    private final boolean ordered;
+    private final boolean continueOnError;
+
+    private ForEachLoop(Map<String, Object> config) {
+        Object source = config.get("items");
+        if (source == null || String.valueOf(source).isBlank()) throw new IllegalArgumentException("Missing items in FOREACH config");
+        this.items = Expression.compile(String.valueOf(source));
+        this.itemVar = Variable.of(text(config.get("itemVar"), "item"));
+        this.indexVar = Variable.of(text(config.get("indexVar"), "index"));
+        Object output = config.get("output");
+        this.outputs = output instanceof List<?> l
+            ? l.stream().map(o -> Variable.of(String.valueOf(o))).toList()
+            : List.of(Variable.of(text(output, "result")));
+        String key = text(config.get("resultKey"), null);
+        this.resultKey = key == null ? null : Variable.of(key);
+        this.parallelism = Math.max(1, integer(config.get("parallelism"), 1));
+        this.chunkSize = integer(config.get("chunkSize"), 0);
+        this.ordered = !"false".equalsIgnoreCase(String.valueOf(config.get("ordered")));
+        this.continueOnError = "CONTINUE".equalsIgnoreCase(text(config.get("onItemError"), "FAIL"));
+    }
+
+    static ForEachLoop compile(Map<String, Object> config) {
+        return new ForEachLoop(config);
+    }
+
+    // Sets resultKey, foreachCount, foreachFailed and foreachErrors on the loop's context. With the
+    // default onItemError FAIL the first failing element stops new claims and fails the node.
+    void run(ExecutionContext context, Executor executor, Body body) throws Exception {
+        List<?> list = elements(items.evaluate(context));
+        int n = list.size();
+        int chunk = chunkSize > 0 ? chunkSize : Math.min(1024, Math.max(1, n / (parallelism * 8)));
+        int workers = Math.max(1, Math.min(parallelism, (n + chunk - 1) / chunk));
+
+        Object[] slots = resultKey != null && ordered ? new Object[n] : null;
+        ConcurrentLinkedQueue<Object> completed = resultKey != null && !ordered ? new ConcurrentLinkedQueue<>() : null;
+        ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean stop = new AtomicBoolean();
+
+        Runnable worker = () -> {
+            while (!stop.get()) {
+                int from = next.getAndAdd(chunk);
+                if (from >= n) return;
+                for (int i = from; i < Math.min(n, from + chunk) && !stop.get(); i++) {
+                    ExecutionContext scope = context.fork();
+                    scope.set(itemVar, list.get(i));
+                    scope.setInt(indexVar, i);
+                    try {
+                        Object out = collect(body.run(scope));
+                        if (slots != null) slots[i] = out;
+                        else if (completed != null && out != null) completed.add(out);
+                    } catch (Exception e) {
+                        failures.add(new Failure(i, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+                        if (!continueOnError) stop.set(true);
+                    }
+                }
+            }
+        };
+
+        List<CompletableFuture<Void>> others = new ArrayList<>(workers - 1);
+        for (int w = 1; w < workers; w++) others.add(CompletableFuture.runAsync(worker, executor));
+        worker.run();
+        CompletableFuture.allOf(others.toArray(new CompletableFuture<?>[0])).join();
+
+        List<Failure> failed = new ArrayList<>(failures);
+        failed.sort(Comparator.comparingInt(Failure::index));
+        if (resultKey != null) {
+            context.set(resultKey, slots != null ? new ArrayList<>(Arrays.asList(slots)) : new ArrayList<>(completed));
+        }
+        context.setInt(COUNT, n);
+        context.setInt(FAILED, failed.size());
+        List<Map<String, Object>> errors = new ArrayList<>(failed.size());
+        for (Failure f : failed) errors.add(Map.of("index", f.index(), "error", f.error()));
+        context.set(ERRORS, errors.isEmpty() ? null : errors);
+
+        if (!failed.isEmpty() && !continueOnError) {
+            Failure first = failed.get(0);
+            throw new Exception("FOREACH item " + first.index() + " failed: " + first.error());
+        }
+    }
+
+    private Object collect(ExecutionContext scope) {
+        if (resultKey == null) return null;
+        if (outputs.size() == 1) return scope.get(outputs.get(0));
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Variable key : outputs) out.put(key.name(), scope.get(key));
+        return out;
+    }
+
+    // Lists as they are, objects as {key, value} entries, nothing as an empty list.
+    private static List<?> elements(Object value) throws Exception {
+        if (value == null) return List.of();
+        if (value instanceof List<?> l) return l;
+        if (value instanceof Collection<?> c) return new ArrayList<>(c);
+        if (value instanceof Object[] a) return Arrays.asList(a);
+        if (value instanceof Map<?, ?> m) {
+            List<Map<String, Object>> entries = new ArrayList<>(m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("key", String.valueOf(e.getKey()));
+                entry.put("value", e.getValue());
+                entries.add(entry);
+            }
+            return entries;
+        }
+        throw new Exception("FOREACH items is not a list: " + value.getClass().getSimpleName());
+    }
+
+    private static String text(Object v, String fallback) {
+        return v == null || String.valueOf(v).isBlank() ? fallback : String.valueOf(v).trim();
+    }
+
+    private static int integer(Object v, int fallback) {
+        if (v instanceof Number n) return n.intValue();
+        try {
+            return v == null ? fallback : Integer.parseInt(String.valueOf(v).trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.miniflow.core;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class PlanCache {
+    private static final PlanCache SHARED = new PlanCache(256);
+
+    // Layout fields change every time a node is dragged but never affect execution.
+    @JsonIgnoreProperties({"position", "width", "height"})
+    private abstract static class IgnoreLayout {
+    }
+
+    private final ObjectMapper canonical = JsonMapper.builder()
+        .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+        .addMixIn(Node.class, IgnoreLayout.class)
+        .build();
+
+    private final Map<String, WorkflowPlan> plans;
+    private long hits;
+    private long misses;
+
+    public PlanCache(int maxEntries) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WorkflowPlan> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static PlanCache shared() {
+        return SHARED;
+    }
+
+    public WorkflowPlan get(Workflow workflow) {
+        String key = contentHash(workflow);
+        synchronized (this) {
+            WorkflowPlan cached = plans.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        WorkflowPlan plan = WorkflowPlan.compile(workflow);
+        synchronized (this) {
+            plans.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
+
+    public String contentHash(Workflow workflow) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(canonical.writeValueAsBytes(workflow)));
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not hash workflow: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,31 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+
+public class RunResult {
+    private final boolean hasErrors;
+    private final long durationMs;
+    private final ExecutionContext context;
+
+    public RunResult(boolean hasErrors, long durationMs, ExecutionContext context) {
+        this.hasErrors = hasErrors;
+        this.durationMs = durationMs;
+        this.context = context;
+    }
+
+    public boolean hasErrors() {
+        return hasErrors;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public ExecutionContext getContext() {
+        return context;
+    }
+
+    public String getStatus() {
+        return hasErrors ? "FINISHED_WITH_ERRORS" : "FINISHED";
+    }
+}
@@ -0,0 +1,290 @@
+package com.miniflow.core;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.factory.ExecutorFactory;
+import com.miniflow.model.Connection;
+import com.miniflow.model.Node;
+import com.miniflow.model.Workflow;
+import com.miniflow.strategies.NodeExecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class WorkflowPlan {
+    private static final int[] NO_TARGETS = new int[0];
+
+    public static final class Step {
+        public final int index;
+        public final Node node;
+        public final String type;
+        public final String label;
+        public final Map<String, Object> config;
+        public final NodeExecutor executor;
+        public final boolean stopOnFail;
+        private final NodeExecutor.Prepared prepared;
+        private final ForEachLoop forEach;
+        private final RuntimeException forEachError;
+        final int[] targets;
+        final int[] nextTargets;
+        final Map<String, int[]> branchTargets;
+        // Where a CONDITIONAL branch label with no matching edge goes: the node's `default`, or DEFAULT.
+        final String fallbackBranch;
+        int inDegree;
+        BitSet reachers;
+
+        private Step(int index, Node node, int[] targets, Map<String, int[]> branchTargets) {
+            this.index = index;
+            this.node = node;
+            this.type = node.type == null ? "" : node.type.toUpperCase(Locale.ROOT);
+            this.label = safeLabel(node);
+            this.config = safeConfig(node);
+            NodeExecutor bound = null;
+            NodeExecutor.Prepared handle;
+            try {
+                bound = ExecutorFactory.getExecutor(node.type);
+                handle = bound.prepare(node);
+            } catch (Exception e) {
+                // Unknown types and invalid configs fail when the step runs, like any other node error.
+                handle = context -> {
+                    throw e;
+                };
+            }
+            this.executor = bound;
+            this.prepared = handle;
+            ForEachLoop loop = null;
+            RuntimeException invalid = null;
+            if (type.equals("FOREACH")) {
+                try {
+                    loop = ForEachLoop.compile(config);
+                } catch (RuntimeException e) {
+                    invalid = e;
+                }
+            }
+            this.forEach = loop;
+            this.forEachError = invalid;
+            this.stopOnFail = isStopPolicy(config);
+            this.targets = targets;
+            this.branchTargets = branchTargets;
+            this.fallbackBranch = fallbackBranch(node, config);
+            this.nextTargets = type.equals("FOREACH") ? without(targets, branchTargets.get("BODY")) : targets;
+        }
+
+        public void execute(ExecutionContext context) throws Exception {
+            prepared.execute(context);
+        }
+
+        // The FOREACH loop compiled with the plan; a bad config fails the step when it runs.
+        ForEachLoop forEach() {
+            if (forEachError != null) throw forEachError;
+            return forEach;
+        }
+
+        public boolean is(String upperType) {
+            return type.equals(upperType);
+        }
+
+        public boolean isJoin() {
+            return type.equals("JOIN");
+        }
+    }
+
+    private final String name;
+    private final Step[] steps;
+    private final int start;
+    private final List<String> warnings;
+
+    private WorkflowPlan(String name, Step[] steps, int start, List<String> warnings) {
+        this.name = name;
+        this.steps = steps;
+        this.start = start;
+        this.warnings = warnings;
+    }
+
+    public static WorkflowPlan compile(Workflow workflow) {
+        List<Node> nodes = workflow == null || workflow.nodes == null ? List.of() : workflow.nodes;
+        List<Connection> edges = workflow == null || workflow.edges == null ? List.of() : workflow.edges;
+
+        Map<String, Integer> indexById = new HashMap<>();
+        int start = -1;
+        for (int i = 0; i < nodes.size(); i++) {
+            Node n = nodes.get(i);
+            if (n.id != null && indexById.putIfAbsent(n.id, i) != null) {
+                throw new IllegalArgumentException("Duplicate node id: " + n.id);
+            }
+            if (start < 0 && n.type != null && n.type.equalsIgnoreCase("START")) start = i;
+        }
+        if (start < 0) throw new RuntimeException("No START node found");
+
+        List<List<Integer>> targets = new ArrayList<>(nodes.size());
+        List<Map<String, List<Integer>>> branches = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            targets.add(new ArrayList<>(1));
+            branches.add(new HashMap<>(2));
+        }
+
+        for (Connection e : edges) {
+            Integer from = e.source == null ? null : indexById.get(e.source);
+            Integer to = e.target == null ? null : indexById.get(e.target);
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Edge references an unknown node: " + e.source + " -> " + e.target);
+            }
+
+            targets.get(from).add(to);
+            Map<String, List<Integer>> b = branches.get(from);
+            String label = e.label == null ? null : e.label.toUpperCase(Locale.ROOT);
+            String handle = e.sourceHandle == null ? null : e.sourceHandle.toUpperCase(Locale.ROOT);
+            if (label != null) b.computeIfAbsent(label, k -> new ArrayList<>(1)).add(to);
+            if (handle != null && !handle.equals(label)) b.computeIfAbsent(handle, k -> new ArrayList<>(1)).add(to);
+        }
+
+        Step[] steps = new Step[nodes.size()];
+        for (int i = 0; i < steps.length; i++) {
+            Map<String, int[]> b = new HashMap<>(2);
+            branches.get(i).forEach((k, v) -> b.put(k, toArray(v)));
+            steps[i] = new Step(i, nodes.get(i), toArray(targets.get(i)), b.isEmpty() ? Map.of() : b);
+        }
+        for (Step step : steps) {
+            for (int t : step.targets) steps[t].inDegree++;
+        }
+        for (Step step : steps) {
+            if (step.isJoin()) step.reachers = findReachers(steps, step.index);
+        }
+
+        String name = (workflow != null && workflow.name != null && !workflow.name.isBlank())
+            ? workflow.name
+            : "Workflow";
+
+        List<String> warnings = new ArrayList<>(findUnreachable(steps, start));
+        for (Step step : steps) {
+            if (step.is("FOREACH") && !step.branchTargets.containsKey("BODY")) {
+                warnings.add("Nodo FOREACH \"" + step.node.id + "\" no tiene una conexion BODY");
+            }
+        }
+        return new WorkflowPlan(name, steps, start, Collections.unmodifiableList(warnings));
+    }
+
+    private static int[] without(int[] targets, int[] excluded) {
+        if (excluded == null || excluded.length == 0) return targets;
+        return Arrays.stream(targets).filter(t -> Arrays.stream(excluded).noneMatch(e -> e == t)).toArray();
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.isEmpty() ? NO_TARGETS : list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Every step that has a path into the join; used to decide when no more arrivals are possible.
+    private static BitSet findReachers(Step[] steps, int join) {
+        List<List<Integer>> reverse = new ArrayList<>(steps.length);
+        for (int i = 0; i < steps.length; i++) reverse.add(new ArrayList<>(1));
+        for (Step step : steps) {
+            for (int t : step.targets) reverse.get(t).add(step.index);
+        }
+
+        BitSet seen = new BitSet(steps.length);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(join);
+        while (!queue.isEmpty()) {
+            for (int p : reverse.get(queue.poll())) {
+                if (!seen.get(p)) {
+                    seen.set(p);
+                    queue.add(p);
+                }
+            }
+        }
+        return seen;
+    }
+
+    private static List<String> findUnreachable(Step[] steps, int start) {
+        boolean[] seen = new boolean[steps.length];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        seen[start] = true;
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            for (int t : steps[queue.poll()].targets) {
+                if (!seen[t]) {
+                    seen[t] = true;
+                    queue.add(t);
+                }
+            }
+        }
+
+        List<String> warnings = new ArrayList<>();
+        for (int i = 0; i < steps.length; i++) {
+            if (!seen[i]) warnings.add("Nodo \"" + steps[i].node.id + "\" no es alcanzable desde START");
+        }
+        return warnings;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Step getStart() {
+        return steps[start];
+    }
+
+    public Step getStep(int index) {
+        return steps[index];
+    }
+
+    public int size() {
+        return steps.length;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public int[] successors(Step current, String branch) {
+        int[] t = current.targets;
+        if (t.length == 0) return NO_TARGETS;
+        if (branch == null) return current.is("CONDITIONAL") ? new int[]{t[0]} : current.nextTargets;
+
+        int[] targets = current.branchTargets.get(branch.toUpperCase(Locale.ROOT));
+        if (targets == null) targets = current.branchTargets.get(current.fallbackBranch);
+        return targets == null ? NO_TARGETS : targets;
+    }
+
+    private static String fallbackBranch(Node node, Map<String, Object> cfg) {
+        Object d = cfg.containsKey("default") || node.data == null ? cfg.get("default") : node.data.get("default");
+        String s = d == null ? "" : String.valueOf(d);
+        return s.isBlank() ? "DEFAULT" : s.toUpperCase(Locale.ROOT);
+    }
+
+    private static boolean isStopPolicy(Map<String, Object> cfg) {
+        Object p = cfg.get("errorPolicy");
+        if (p == null) p = cfg.get("onError");
+        if (p == null) return true;
+        String s = String.valueOf(p);
+        if (s.isBlank()) return true;
+        return s.equalsIgnoreCase("STOP_ON_FAIL") || s.equalsIgnoreCase("STOP");
+    }
+
+    private static String safeLabel(Node node) {
+        try {
+            if (node.data == null) return "";
+            Object label = node.data.get("label");
+            if (label != null) return String.valueOf(label);
+        } catch (Exception ignored) {
+        }
+        return "";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> safeConfig(Node node) {
+        try {
+            if (node.data == null) return Map.of();
+            Object cfg = node.data.get("config");
+            if (cfg instanceof Map<?, ?> m) return (Map<String, Object>) m;
+        } catch (Exception ignored) {
+        }
+        return Map.of();
+    }
+}
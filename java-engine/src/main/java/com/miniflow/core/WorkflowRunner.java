@@ -1,134 +1,378 @@
 package com.miniflow.core;
 
+import com.miniflow.context.AccessLog;
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.LargeValue;
+import com.miniflow.context.Variable;
+import com.miniflow.events.EventSink;
+import com.miniflow.events.EventSinks;
+import com.miniflow.events.RunEvent;
 import com.miniflow.factory.ExecutorFactory;
-import com.miniflow.model.Connection;
-import com.miniflow.model.Node;
+import com.miniflow.journal.RunJournal;
+import com.miniflow.memo.ContentDigest;
+import com.miniflow.memo.MemoStore;
+import com.miniflow.metrics.Metrics;
 import com.miniflow.model.Workflow;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class WorkflowRunner {
+    private static final int[] NO_SUCCESSORS = new int[0];
+    private static final Variable STATUS = Variable.of("status");
+    private static final Variable HTTP_STATUS = Variable.of("httpStatus");
+    private static final Variable LAST_ERROR = Variable.of("__lastError");
+    private static final Variable BRANCH = Variable.of("__branch");
+    private static final DagExecution.Scopes<ExecutionContext> CONTEXT_SCOPES = new DagExecution.Scopes<>() {
+        @Override
+        public ExecutionContext fork(ExecutionContext scope) {
+            return scope.fork();
+        }
+
+        @Override
+        public ExecutionContext join(List<ExecutionContext> arrivals) {
+            return ExecutionContext.join(arrivals);
+        }
+    };
+
+    private static final class RunState {
+        final String runId;
+        final RunJournal journal;
+        final AtomicBoolean hasErrors = new AtomicBoolean();
+        final AtomicReference<String> firstError = new AtomicReference<>();
+        final AtomicInteger nodes;
+        final AtomicInteger failed;
+        final Map<String, AtomicInteger> occurrences;
+
+        RunState(RunJournal journal) {
+            this(journal == null ? UUID.randomUUID().toString() : journal.runId(), journal,
+                new AtomicInteger(), new AtomicInteger(), new ConcurrentHashMap<>());
+        }
+
+        private RunState(String runId, RunJournal journal, AtomicInteger nodes, AtomicInteger failed,
+                         Map<String, AtomicInteger> occurrences) {
+            this.runId = runId;
+            this.journal = journal;
+            this.nodes = nodes;
+            this.failed = failed;
+            this.occurrences = occurrences;
+        }
+
+        // One FOREACH element: counts toward the run, but its errors are judged by the loop's policy.
+        RunState element() {
+            return new RunState(runId, journal, nodes, failed, occurrences);
+        }
+
+        // How many times this node already ran in the run; a journal entry is per occurrence.
+        int occurrence(String nodeId) {
+            return occurrences.computeIfAbsent(String.valueOf(nodeId), k -> new AtomicInteger()).getAndIncrement();
+        }
+    }
+
+    // replay is null when the step executed, otherwise the tag shown after its response. reads are
+    // digests, present only when the step ran or was replayed with a known read set.
+    private record Terminal(int step, ExecutionContext scope) {
+    }
+
+    private record Outcome(String replay, Map<String, String> reads, Map<String, Object> writes) {
+        static final Outcome EXECUTED = new Outcome(null, null, null);
+    }
+
+    private final EventSink events;
+    private final int maxParallelism;
+    private final MemoStore memo;
+
+    public WorkflowRunner() {
+        this(EventSinks.console());
+    }
+
+    public WorkflowRunner(EventSink events) {
+        this(events, EngineExecutors.defaultParallelism());
+    }
 
-    public void run(Workflow workflow) {
-        ExecutionContext context = ExecutionContext.getInstance();
-        context.clear();
+    public WorkflowRunner(EventSink events, int maxParallelism) {
+        this(events, maxParallelism, null);
+    }
 
-        long workflowStart = System.currentTimeMillis();
-        boolean hasErrors = false;
+    // With a MemoStore, nodes whose config and inputs are unchanged replay their recorded writes.
+    public WorkflowRunner(EventSink events, int maxParallelism, MemoStore memo) {
+        this.events = events;
+        this.maxParallelism = maxParallelism;
+        this.memo = memo;
+    }
 
-        String workflowName = (workflow != null && workflow.name != null && !workflow.name.isBlank())
-            ? workflow.name
-            : "Workflow";
+    public RunResult run(Workflow workflow) {
+        return run(PlanCache.shared().get(workflow));
+    }
 
-        System.out.println("Ejecutando \"" + workflowName + "\":");
-        System.out.println("======================");
+    public RunResult run(WorkflowPlan plan) {
+        return run(plan, new ExecutionContext());
+    }
 
-        Node currentNode = workflow.nodes.stream()
-            .filter(n -> n.type != null && n.type.equalsIgnoreCase("START"))
-            .findFirst()
-            .orElseThrow(() -> new RuntimeException("No START node found"));
+    public RunResult run(WorkflowPlan plan, ExecutionContext context) {
+        return run(plan, context, null);
+    }
 
-        while (currentNode != null) {
-            String error = null;
-            boolean stopOnFail = false;
+    // With a journal every completed node is recorded; a journal opened with RunJournal.resume
+    // replays the nodes it already holds and continues from the first one it does not.
+    public RunResult run(WorkflowPlan plan, ExecutionContext context, RunJournal journal) {
+        long workflowStart = System.nanoTime();
+        RunState run = new RunState(journal);
+        ConcurrentLinkedQueue<Terminal> terminals = new ConcurrentLinkedQueue<>();
+
+        context.setOutputListener((node, stream, line) ->
+            events.emit(RunEvent.nodeOutput(run.runId, node.id, node.type, stream, line)));
+        events.emit(RunEvent.runStarted(run.runId, plan.getName()));
+        for (String warning : plan.getWarnings()) events.emit(RunEvent.warning(run.runId, warning));
+        if (journal != null && journal.resumedNodes() > 0) {
+            events.emit(RunEvent.warning(run.runId, "Reanudando ejecucion " + run.runId + " con "
+                + journal.resumedNodes() + " nodos completados"));
+        }
 
+        new DagExecution<ExecutionContext>(plan, EngineExecutors.nodePool(), maxParallelism,
+            (step, scope) -> {
+                int[] next = runStep(plan, step, scope, run);
+                if (next == null || next.length == 0) terminals.add(new Terminal(step.index, scope));
+                return next;
+            },
+            CONTEXT_SCOPES).run(context);
+
+        boolean hasErrors = run.hasErrors.get();
+        ExecutionContext result = resultContext(context, terminals);
+        result.setVariable("__workflowHasErrors", hasErrors);
+
+        long elapsedNanos = System.nanoTime() - workflowStart;
+        long elapsed = elapsedNanos / 1_000_000;
+        Metrics.shared().recordNanos("miniflow_run_duration_seconds", elapsedNanos, "workflow", plan.getName());
+        RunResult runResult = new RunResult(hasErrors, elapsed, result);
+        Metrics.shared().increment("miniflow_runs_total", "status", runResult.getStatus());
+        events.emit(RunEvent.runFinished(run.runId, plan.getName(), runResult.getStatus(), elapsed,
+            run.nodes.get(), run.failed.get()));
+        events.flush();
+        if (journal != null) {
             try {
-                ExecutorFactory.getExecutor(currentNode.type).execute(currentNode, context);
-            } catch (Exception e) {
-                hasErrors = true;
-                error = (e.getMessage() == null || e.getMessage().isBlank())
-                    ? e.getClass().getSimpleName()
-                    : e.getMessage();
-
-                context.setVariable("__lastError", error);
-
-                if (currentNode.type != null && currentNode.type.equalsIgnoreCase("HTTP_REQUEST")) {
-                    Object status = context.getVariable("status");
-                    if (status == null) context.setVariable("status", 0);
-                }
-
-                String policy = getErrorPolicy(currentNode);
-                stopOnFail = policy.equalsIgnoreCase("STOP_ON_FAIL") || policy.equalsIgnoreCase("STOP");
+                journal.finish(!hasErrors);
+            } catch (IOException e) {
+                System.err.println("JOURNAL_ERROR: " + e.getMessage());
             }
+        }
+        return runResult;
+    }
+
+    // Every scope a path ended in, halted ones included, merged in step order so that branches of a
+    // fan-out without a JOIN all reach the result and the winner on a conflicting key is stable.
+    private static ExecutionContext resultContext(ExecutionContext root, Collection<Terminal> terminals) {
+        List<ExecutionContext> scopes = new ArrayList<>();
+        terminals.stream()
+            .sorted(Comparator.comparingInt(Terminal::step))
+            .map(Terminal::scope)
+            .forEach(scope -> {
+                if (scopes.stream().noneMatch(s -> s == scope)) scopes.add(scope);
+            });
+        return scopes.isEmpty() ? root : ExecutionContext.join(scopes);
+    }
 
-            if (error == null && currentNode.type != null && currentNode.type.equalsIgnoreCase("HTTP_REQUEST")) {
-                int statusCode = resolveHttpStatus(context);
-                String policy = getErrorPolicy(currentNode);
-                if (statusCode >= 400 && (policy.equalsIgnoreCase("STOP_ON_FAIL") || policy.equalsIgnoreCase("STOP"))) {
-                    hasErrors = true;
-                    error = "HTTP " + statusCode + " en nodo HTTP_REQUEST (STOP_ON_FAIL)";
-                    context.setVariable("__lastError", error);
-                    stopOnFail = true;
-                }
+    private int[] runStep(WorkflowPlan plan, WorkflowPlan.Step step, ExecutionContext context, RunState run) {
+        AtomicBoolean hasErrors = run.hasErrors;
+        events.emit(RunEvent.nodeStarted(run.runId, step.node.id, step.node.type, step.label));
+        long t0 = System.nanoTime();
+
+        String error = null;
+        boolean stopOnFail = false;
+        int occurrence = run.journal == null ? 0 : run.occurrence(step.node.id);
+        Outcome outcome = Outcome.EXECUTED;
+
+        try {
+            outcome = execute(step, context, run.journal, occurrence);
+            if (step.is("FOREACH")) runLoop(plan, step, context, run);
+        } catch (Exception e) {
+            hasErrors.set(true);
+            error = (e.getMessage() == null || e.getMessage().isBlank())
+                ? e.getClass().getSimpleName()
+                : e.getMessage();
+
+            context.set(LAST_ERROR, error);
+
+            if (step.is("HTTP_REQUEST") && !context.has(STATUS)) context.setInt(STATUS, 0);
+
+            stopOnFail = step.stopOnFail;
+        }
+
+        if (error == null && step.is("HTTP_REQUEST")) {
+            int statusCode = resolveHttpStatus(context);
+            if (statusCode >= 400 && step.stopOnFail) {
+                hasErrors.set(true);
+                error = "HTTP " + statusCode + " en nodo HTTP_REQUEST (STOP_ON_FAIL)";
+                context.set(LAST_ERROR, error);
+                stopOnFail = true;
             }
+        }
+
+        if (run.journal != null) record(run.journal, step, occurrence, outcome, error);
+
+        String response = buildResponse(step, context, error);
+        if (error == null && outcome.replay() != null) response += " [" + outcome.replay() + "]";
+        long durationNanos = System.nanoTime() - t0;
+        long durationMs = durationNanos / 1_000_000;
+        run.nodes.incrementAndGet();
+        Metrics.shared().recordNanos("miniflow_node_duration_seconds", durationNanos,
+            "type", step.type, "node", step.node.id);
+        if (error != null) {
+            run.firstError.compareAndSet(null, error);
+            run.failed.incrementAndGet();
+            Metrics.shared().increment("miniflow_node_failures_total", "type", step.type, "node", step.node.id);
+        }
+        events.emit(RunEvent.nodeFinished(run.runId, step.node.id, step.node.type, step.label, response, error, durationMs));
+
+        if (error != null && stopOnFail) return null;
+        if (step.is("END")) return NO_SUCCESSORS;
 
-            String response = buildResponse(currentNode, context, error);
-            printNodeBlock(currentNode, response);
+        return plan.successors(step, branchOf(step, context));
+    }
+
+    // Each element runs the BODY sub-graph as its own execution rooted at the loop node; edges that
+    // lead back into the loop node close the body instead of starting another pass.
+    private void runLoop(WorkflowPlan plan, WorkflowPlan.Step loop, ExecutionContext context, RunState run)
+            throws Exception {
+        loop.forEach().run(context, EngineExecutors.nodePool(), scope -> {
+            RunState element = run.element();
+            AtomicReference<ExecutionContext> last = new AtomicReference<>(scope);
+            new DagExecution<ExecutionContext>(plan, EngineExecutors.nodePool(), maxParallelism,
+                (step, s) -> {
+                    int[] next = step == loop ? plan.successors(loop, "BODY") : runStep(plan, step, s, element);
+                    if (next != null && step != loop) next = Arrays.stream(next).filter(i -> i != loop.index).toArray();
+                    if (next != null && next.length == 0) last.set(s);
+                    return next;
+                },
+                CONTEXT_SCOPES).run(loop.index, scope);
+            boolean ok = !element.hasErrors.get();
+            Metrics.shared().increment("miniflow_foreach_items_total", "node", loop.node.id, "result", ok ? "ok" : "failed");
+            if (!ok) throw new Exception(element.firstError.get());
+            return last.get();
+        });
+    }
 
-            if (error != null && stopOnFail) break;
-            if (currentNode.type != null && currentNode.type.equalsIgnoreCase("END")) break;
+    private Outcome execute(WorkflowPlan.Step step, ExecutionContext context, RunJournal journal, int occurrence)
+            throws Exception {
+        if (journal != null) {
+            Map<String, Object> writes = journal.replay(step.node.id, occurrence, step.config, context);
+            if (writes != null) {
+                writes.forEach(context::setVariable);
+                return new Outcome("reanudado", null, null);
+            }
+        }
 
-            currentNode = resolveNextNode(workflow, currentNode, context);
+        boolean memoize = memo != null && memo.appliesTo(step.type, step.config);
+        if (!memoize && journal == null) {
+            step.execute(context);
+            return Outcome.EXECUTED;
         }
 
-        context.setVariable("__workflowHasErrors", hasErrors);
+        String signature = memoize ? memo.signature(step.type, step.config) : null;
+        if (memoize) {
+            MemoStore.Hit hit = memo.lookup(signature, context);
+            if (hit != null) {
+                hit.writes().forEach(context::setVariable);
+                Metrics.shared().increment("miniflow_memo_total", "type", step.type, "result", "hit");
+                return new Outcome("memo", hit.reads(), hit.writes());
+            }
+        }
 
-        long workflowEnd = System.currentTimeMillis();
-        System.out.println("=============");
-        System.out.println("Ejecucion completada en " + (workflowEnd - workflowStart) + " ms");
+        AccessLog log = context.startTracking();
+        try {
+            step.execute(context);
+        } finally {
+            context.stopTracking();
+        }
+        // A spilled value only lives as long as this process, so nodes that produced one are neither
+        // memoized nor journaled and simply run again.
+        Map<String, Object> writes = log.writes();
+        if (writes.values().stream().anyMatch(v -> v instanceof LargeValue)) {
+            if (memoize) Metrics.shared().increment("miniflow_memo_total", "type", step.type, "result", "spilled");
+            return Outcome.EXECUTED;
+        }
+        if (memoize) {
+            memo.store(signature, log);
+            Metrics.shared().increment("miniflow_memo_total", "type", step.type, "result", "miss");
+        }
+        return new Outcome(null, journal == null ? null : ContentDigest.ofAll(log.reads()), writes);
     }
 
-    private String getErrorPolicy(Node node) {
-        Map<String, Object> cfg = safeConfig(node);
-        Object p = cfg.get("errorPolicy");
-        if (p == null) p = cfg.get("onError");
-        if (p == null) return "STOP_ON_FAIL";
-        String s = String.valueOf(p);
-        if (s.isBlank()) return "STOP_ON_FAIL";
-        return s;
+    // A node counts as completed only once the runner accepted it, so an HTTP status that trips
+    // STOP_ON_FAIL after the request is journaled as a failure and runs again on resume.
+    private void record(RunJournal journal, WorkflowPlan.Step step, int occurrence, Outcome outcome, String error) {
+        try {
+            if (error != null) journal.failed(step.node.id, occurrence, error);
+            else if (outcome.reads() != null && outcome.writes() != null) {
+                journal.completed(step.node.id, occurrence, step.config, outcome.reads(), outcome.writes());
+            }
+        } catch (IOException e) {
+            System.err.println("JOURNAL_ERROR: " + e.getMessage());
+        }
     }
 
-    private void printNodeBlock(Node node, String response) {
-        System.out.println("Nodo: \"" + node.id + "\"");
-        System.out.println("Descripcion: " + safeLabel(node));
-        System.out.println("Tipo: " + (node.type == null ? "" : node.type));
-        System.out.println("Respuesta: " + response);
-        System.out.println("======================");
+    private String branchOf(WorkflowPlan.Step step, ExecutionContext context) {
+        if (!step.is("CONDITIONAL")) return null;
+        Object b = context.get(BRANCH);
+        return b == null ? null : String.valueOf(b);
     }
 
-    private String buildResponse(Node node, ExecutionContext context, String error) {
+    private String buildResponse(WorkflowPlan.Step step, ExecutionContext context, String error) {
         if (error != null) return "ERROR: " + error;
 
-        String t = node.type == null ? "" : node.type.toUpperCase();
+        String t = step.type;
 
         if (t.equals("HTTP_REQUEST")) {
-            Map<String, Object> cfg = safeConfig(node);
+            Map<String, Object> cfg = step.config;
             String method = cfg.get("method") == null ? "GET" : String.valueOf(cfg.get("method"));
             String url = cfg.get("url") == null ? "" : String.valueOf(cfg.get("url"));
-            Object status = context.getVariable("status");
+            Object status = context.get(STATUS);
             String s = status == null ? "" : String.valueOf(status);
+            Object endpoint = context.getVariable("httpEndpoint");
+            if (endpoint != null && !String.valueOf(endpoint).equals(url)) s += " (via " + endpoint + ")";
+            Object cache = context.getVariable("httpCache");
+            if (cache != null && !"BYPASS".equals(cache)) s += " [cache " + cache + "]";
             return "HTTP " + method.toUpperCase() + " " + url + " -> " + s;
         }
 
         if (t.equals("CONDITIONAL")) {
-            Map<String, Object> cfg = safeConfig(node);
-            String cond = cfg.get("condition") == null ? "" : String.valueOf(cfg.get("condition"));
-            Object b = context.getVariable("__branch");
+            Map<String, Object> cfg = step.config;
+            Object expr = cfg.get("condition") != null ? cfg.get("condition") : cfg.get("switch");
+            String cond = expr == null ? "" : String.valueOf(expr);
+            Object b = context.get(BRANCH);
             String branch = b == null ? "" : String.valueOf(b);
             if (cond.isBlank()) return "Resultado = " + branch;
             return "Condicion: " + cond + " -> " + branch;
         }
 
+        if (t.equals("FOREACH")) {
+            Object count = context.getVariable("foreachCount");
+            Object failed = context.getVariable("foreachFailed");
+            String s = "Elementos: " + (count == null ? 0 : count);
+            if (failed instanceof Number f && f.intValue() > 0) s += " (" + f + " fallidos)";
+            Object key = step.config.get("resultKey");
+            return key == null ? s : s + " -> " + key;
+        }
+
         if (t.equals("COMMAND")) {
-            Map<String, Object> cfg = safeConfig(node);
+            Map<String, Object> cfg = step.config;
             String cmd = cfg.get("command") == null ? "" : String.valueOf(cfg.get("command"));
             String args = cfg.get("args") == null ? "" : String.valueOf(cfg.get("args"));
             String full = (args == null || args.isBlank()) ? cmd : (cmd + " " + args);
 
             Object out = context.getVariable("lastStdout");
-            String stdout = out == null ? "" : String.valueOf(out).trim();
+            String stdout = out == null ? "" : (out instanceof LargeValue large ? large.head(4096) : String.valueOf(out)).trim();
             String oneLine = stdout.replace("\r", "").replace("\n", " ").trim();
             if (oneLine.length() > 200) oneLine = oneLine.substring(0, 200) + "...";
 
@@ -139,33 +383,13 @@ public class WorkflowRunner {
         return "OK";
     }
 
-    private String safeLabel(Node node) {
-        try {
-            if (node.data == null) return "";
-            Object label = node.data.get("label");
-            if (label != null) return String.valueOf(label);
-        } catch (Exception ignored) {
-        }
-        return "";
-    }
-
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> safeConfig(Node node) {
-        try {
-            if (node.data == null) return Map.of();
-            Object cfg = node.data.get("config");
-            if (cfg instanceof Map<?, ?> m) return (Map<String, Object>) m;
-        } catch (Exception ignored) {
-        }
-        return Map.of();
-    }
-
     private int resolveHttpStatus(ExecutionContext context) {
-        Object status = context.getVariable("httpStatus");
-        if (status == null) status = context.getVariable("status");
-        if (status == null) return 0;
+        Variable v = context.has(HTTP_STATUS) ? HTTP_STATUS : STATUS;
+        long code = context.getLong(v, Long.MIN_VALUE);
+        if (code != Long.MIN_VALUE) return (int) code;
 
-        if (status instanceof Number n) return n.intValue();
+        Object status = context.get(v);
+        if (status == null) return 0;
 
         try {
             return Integer.parseInt(String.valueOf(status).trim());
@@ -173,38 +397,4 @@ public class WorkflowRunner {
             return 0;
         }
     }
-
-    private Node resolveNextNode(Workflow workflow, Node currentNode, ExecutionContext context) {
-        String currentId = currentNode.id;
-        String branch = null;
-
-        if (currentNode.type != null && currentNode.type.equalsIgnoreCase("CONDITIONAL")) {
-            Object b = context.getVariable("__branch");
-            if (b != null) branch = String.valueOf(b);
-        }
-
-        if (workflow == null || workflow.nodes == null) return null;
-        if (workflow.edges == null) return null;
-
-        Optional<Connection> edge;
-        if (branch == null) {
-            edge = workflow.edges.stream()
-                .filter(e -> e.source != null && e.source.equals(currentId))
-                .findFirst();
-        } else {
-            final String branchFinal = branch;
-            edge = workflow.edges.stream()
-                .filter(e -> e.source != null && e.source.equals(currentId)
-                    && ((e.label != null && e.label.equalsIgnoreCase(branchFinal))
-                        || (e.sourceHandle != null && e.sourceHandle.equalsIgnoreCase(branchFinal))))
-                .findFirst();
-        }
-
-        if (edge.isPresent()) {
-            String nextId = edge.get().target;
-            return workflow.nodes.stream().filter(n -> n.id.equals(nextId)).findFirst().orElse(null);
-        }
-
-        return null;
-    }
 }
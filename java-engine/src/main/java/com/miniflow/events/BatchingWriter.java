@@ -0,0 +1,129 @@
+package com.miniflow.events;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Producers only append to a lock-free queue; one background thread renders items into a buffer and
+// writes + flushes the underlying stream once per batch.
+public final class BatchingWriter<T> implements AutoCloseable {
+    public interface Renderer<T> {
+        void render(T item, OutputStream out) throws IOException;
+    }
+
+    private static final int MAX_BATCH_ITEMS = 1024;
+    private static final int MAX_BATCH_BYTES = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final OutputStream out;
+    private final boolean closeStream;
+    private final Renderer<T> renderer;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private final Object flushed = new Object();
+    private final Thread thread;
+    private long written;
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    public BatchingWriter(OutputStream out, boolean closeStream, Renderer<T> renderer, String name) {
+        this.out = out;
+        this.closeStream = closeStream;
+        this.renderer = renderer;
+        this.thread = new Thread(this::drainLoop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void submit(T item) {
+        if (closed) return;
+        queue.offer(item);
+        submitted.incrementAndGet();
+        LockSupport.unpark(thread);
+    }
+
+    public void flush() {
+        long target = submitted.get();
+        LockSupport.unpark(thread);
+        synchronized (flushed) {
+            while (written < target && thread.isAlive()) {
+                try {
+                    flushed.wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        flush();
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (closeStream) out.close();
+            else out.flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void drainLoop() {
+        int batch = 0;
+        while (true) {
+            T item = queue.poll();
+            if (item == null) {
+                if (batch > 0) {
+                    writeBatch(batch);
+                    batch = 0;
+                    continue;
+                }
+                if (closed) return;
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            try {
+                if (!failed) renderer.render(item, buffer);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("EVENT_RENDER_ERROR: " + e.getMessage());
+            }
+            batch++;
+            if (batch >= MAX_BATCH_ITEMS || buffer.size() >= MAX_BATCH_BYTES) {
+                writeBatch(batch);
+                batch = 0;
+            }
+        }
+    }
+
+    // A broken destination (closed socket, full disk) is reported once; later items are dropped so
+    // producers never block or accumulate memory.
+    private void writeBatch(int items) {
+        if (!failed && buffer.size() > 0) {
+            try {
+                buffer.writeTo(out);
+                out.flush();
+            } catch (IOException e) {
+                failed = true;
+                System.err.println("EVENT_WRITE_ERROR: " + e.getMessage());
+            }
+        }
+        buffer.reset();
+        synchronized (flushed) {
+            written += items;
+            flushed.notifyAll();
+        }
+    }
+}
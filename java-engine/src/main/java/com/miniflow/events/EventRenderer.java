@@ -0,0 +1,19 @@
+package com.miniflow.events;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+public interface EventRenderer extends BatchingWriter.Renderer<RunEvent> {
+    static EventRenderer forFormat(String format) {
+        String f = format == null ? "text" : format.trim().toLowerCase(Locale.ROOT);
+        return switch (f) {
+            case "text", "" -> new TextRenderer();
+            case "ndjson", "json" -> new NdjsonRenderer();
+            default -> throw new IllegalArgumentException("Unknown event format: " + format);
+        };
+    }
+
+    @Override
+    void render(RunEvent event, OutputStream out) throws IOException;
+}
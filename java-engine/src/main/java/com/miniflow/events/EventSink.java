@@ -0,0 +1,14 @@
+package com.miniflow.events;
+
+public interface EventSink extends AutoCloseable {
+    void emit(RunEvent event);
+
+    // Blocks until every event emitted so far has been written out.
+    default void flush() {
+    }
+
+    @Override
+    default void close() {
+        flush();
+    }
+}
@@ -0,0 +1,77 @@
+package com.miniflow.events;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public final class EventSinks {
+    private static volatile EventSink console;
+
+    private EventSinks() {
+    }
+
+    // Shared text sink on stdout, for runners created without an explicit sink.
+    public static EventSink console() {
+        EventSink c = console;
+        if (c == null) {
+            synchronized (EventSinks.class) {
+                if (console == null) console = stdout(new TextRenderer());
+                c = console;
+            }
+        }
+        return c;
+    }
+
+    public static EventSink stdout(EventRenderer renderer) {
+        return new StreamEventSink(System.out, false, renderer, "miniflow-events-stdout");
+    }
+
+    public static EventSink file(Path path, EventRenderer renderer) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return new StreamEventSink(out, true, renderer, "miniflow-events-file");
+    }
+
+    // "host:port" connects over TCP, anything else is taken as a Unix domain socket path.
+    public static EventSink socket(String target, EventRenderer renderer) throws IOException {
+        SocketChannel channel;
+        int colon = target.lastIndexOf(':');
+        if (colon > 0 && target.substring(colon + 1).chars().allMatch(Character::isDigit) && colon < target.length() - 1) {
+            channel = SocketChannel.open(new InetSocketAddress(target.substring(0, colon), Integer.parseInt(target.substring(colon + 1))));
+        } else {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(target));
+        }
+        return new StreamEventSink(Channels.newOutputStream(channel), true, renderer, "miniflow-events-socket");
+    }
+
+    public static EventSink fanOut(List<EventSink> sinks) {
+        if (sinks.size() == 1) return sinks.get(0);
+        List<EventSink> all = List.copyOf(sinks);
+        return new EventSink() {
+            @Override
+            public void emit(RunEvent event) {
+                for (EventSink s : all) s.emit(event);
+            }
+
+            @Override
+            public void flush() {
+                for (EventSink s : all) s.flush();
+            }
+
+            @Override
+            public void close() {
+                for (EventSink s : all) s.close();
+            }
+        };
+    }
+}
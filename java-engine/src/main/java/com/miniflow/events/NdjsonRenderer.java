@@ -0,0 +1,42 @@
+package com.miniflow.events;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// One JSON object per line: {"event":"nodeFinished","ts":...,"runId":...,"nodeId":...}.
+public class NdjsonRenderer implements EventRenderer {
+    private static final JsonFactory JSON = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @Override
+    public void render(RunEvent e, OutputStream out) throws IOException {
+        try (JsonGenerator g = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+            g.writeStartObject();
+            g.writeStringField("event", e.type().wireName);
+            g.writeNumberField("ts", e.timestampMs());
+            string(g, "runId", e.runId());
+            string(g, "workflow", e.workflow());
+            string(g, "nodeId", e.nodeId());
+            string(g, "nodeType", e.nodeType());
+            string(g, "description", e.description());
+            string(g, "response", e.response());
+            string(g, "error", e.error());
+            string(g, "stream", e.stream());
+            string(g, "line", e.line());
+            string(g, "message", e.message());
+            string(g, "status", e.status());
+            if (e.durationMs() >= 0) g.writeNumberField("durationMs", e.durationMs());
+            if (e.nodes() >= 0) g.writeNumberField("nodes", e.nodes());
+            if (e.failed() >= 0) g.writeNumberField("failed", e.failed());
+            g.writeEndObject();
+        }
+        out.write('\n');
+    }
+
+    private static void string(JsonGenerator g, String name, String value) throws IOException {
+        if (value != null) g.writeStringField(name, value);
+    }
+}
@@ -0,0 +1,53 @@
+package com.miniflow.events;
+
+// One progress event of a workflow run. Fields that do not apply to a type are null (or -1).
+public record RunEvent(Type type, String runId, long timestampMs, String workflow, String nodeId, String nodeType,
+                       String description, String response, String error, long durationMs, String stream,
+                       String line, String message, String status, int nodes, int failed) {
+
+    public enum Type {
+        RUN_STARTED("runStarted"),
+        WARNING("warning"),
+        NODE_STARTED("nodeStarted"),
+        NODE_FINISHED("nodeFinished"),
+        NODE_FAILED("nodeFailed"),
+        NODE_OUTPUT("nodeOutput"),
+        RUN_FINISHED("runFinished");
+
+        public final String wireName;
+
+        Type(String wireName) {
+            this.wireName = wireName;
+        }
+    }
+
+    public static RunEvent runStarted(String runId, String workflow) {
+        return new RunEvent(Type.RUN_STARTED, runId, now(), workflow, null, null, null, null, null, -1, null, null, null, null, -1, -1);
+    }
+
+    public static RunEvent warning(String runId, String message) {
+        return new RunEvent(Type.WARNING, runId, now(), null, null, null, null, null, null, -1, null, null, message, null, -1, -1);
+    }
+
+    public static RunEvent nodeStarted(String runId, String nodeId, String nodeType, String description) {
+        return new RunEvent(Type.NODE_STARTED, runId, now(), null, nodeId, nodeType, description, null, null, -1, null, null, null, null, -1, -1);
+    }
+
+    public static RunEvent nodeFinished(String runId, String nodeId, String nodeType, String description,
+                                        String response, String error, long durationMs) {
+        Type type = error == null ? Type.NODE_FINISHED : Type.NODE_FAILED;
+        return new RunEvent(type, runId, now(), null, nodeId, nodeType, description, response, error, durationMs, null, null, null, null, -1, -1);
+    }
+
+    public static RunEvent nodeOutput(String runId, String nodeId, String nodeType, String stream, String line) {
+        return new RunEvent(Type.NODE_OUTPUT, runId, now(), null, nodeId, nodeType, null, null, null, -1, stream, line, null, null, -1, -1);
+    }
+
+    public static RunEvent runFinished(String runId, String workflow, String status, long durationMs, int nodes, int failed) {
+        return new RunEvent(Type.RUN_FINISHED, runId, now(), workflow, null, null, null, null, null, durationMs, null, null, null, status, nodes, failed);
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
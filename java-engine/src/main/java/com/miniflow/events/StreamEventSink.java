@@ -0,0 +1,26 @@
+package com.miniflow.events;
+
+import java.io.OutputStream;
+
+public class StreamEventSink implements EventSink {
+    private final BatchingWriter<RunEvent> writer;
+
+    public StreamEventSink(OutputStream out, boolean closeStream, EventRenderer renderer, String name) {
+        this.writer = new BatchingWriter<>(out, closeStream, renderer, name);
+    }
+
+    @Override
+    public void emit(RunEvent event) {
+        writer.submit(event);
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
@@ -0,0 +1,24 @@
+package com.miniflow.events;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// The original human-readable console format.
+public class TextRenderer implements EventRenderer {
+    @Override
+    public void render(RunEvent e, OutputStream out) throws IOException {
+        String text = switch (e.type()) {
+            case RUN_STARTED -> "Ejecutando \"" + e.workflow() + "\":\n======================\n";
+            case WARNING -> "Advertencia: " + e.message() + "\n";
+            case NODE_FINISHED, NODE_FAILED -> "Nodo: \"" + e.nodeId() + "\"\n"
+                    + "Descripcion: " + e.description() + "\n"
+                    + "Tipo: " + (e.nodeType() == null ? "" : e.nodeType()) + "\n"
+                    + "Respuesta: " + e.response() + "\n"
+                    + "======================\n";
+            case RUN_FINISHED -> "=============\nEjecucion completada en " + e.durationMs() + " ms\n";
+            case NODE_STARTED, NODE_OUTPUT -> null;
+        };
+        if (text != null) out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
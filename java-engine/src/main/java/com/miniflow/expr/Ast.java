@@ -0,0 +1,188 @@
+package com.miniflow.expr;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.Variable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+final class Ast {
+    private Ast() {
+    }
+
+    record Literal(Object value) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            return value;
+        }
+    }
+
+    // root[.name | [expr]]*; steps hold either a String or an Expression for computed indices.
+    record Path(Variable root, List<Object> steps) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            Object cur = context.get(root);
+            for (Object step : steps) {
+                if (cur == null) return null;
+                Object key = step instanceof Expression e ? e.evaluate(context) : step;
+                cur = member(cur, key);
+            }
+            return cur;
+        }
+
+        private static Object member(Object target, Object key) {
+            if (target instanceof Map<?, ?> m) return m.get(String.valueOf(key));
+            if (target instanceof List<?> l) {
+                Number n = Values.number(key);
+                if (n == null) return null;
+                int i = n.intValue() < 0 ? l.size() + n.intValue() : n.intValue();
+                return i >= 0 && i < l.size() ? l.get(i) : null;
+            }
+            return null;
+        }
+    }
+
+    // Bare identifier compared against something: kept as its own name when no such variable exists,
+    // which is how `status == ok` has always been read.
+    record BareWord(Path path) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            Object v = path.evaluate(context);
+            return v != null ? v : path.root().name();
+        }
+    }
+
+    record Not(Expression inner) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            return !inner.test(context);
+        }
+    }
+
+    record Negate(Expression inner) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            Number n = Values.number(inner.evaluate(context));
+            if (n == null) return null;
+            return Values.isIntegral(n) ? (Object) (-n.longValue()) : (Object) (-n.doubleValue());
+        }
+    }
+
+    record And(Expression left, Expression right) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            return left.test(context) && right.test(context);
+        }
+    }
+
+    record Or(Expression left, Expression right) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            return left.test(context) || right.test(context);
+        }
+    }
+
+    enum CompareOp { EQ, NE, LT, LE, GT, GE }
+
+    record Compare(Expression left, CompareOp op, Expression right) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            Variable v = plainVariable(left);
+            if (v != null && right instanceof Literal l && l.value() instanceof Number n) {
+                // `count > 3`: read the number from the context's lanes instead of boxing and re-parsing.
+                double x = context.getDouble(v, Double.NaN);
+                if (!Double.isNaN(x)) return holds(x, n.doubleValue());
+            }
+            Object a = left.evaluate(context);
+            Object b = right.evaluate(context);
+            return switch (op) {
+                case EQ -> Values.looseEquals(a, b);
+                case NE -> !Values.looseEquals(a, b);
+                default -> {
+                    Integer c = Values.compare(a, b);
+                    if (c == null) yield false;
+                    yield switch (op) {
+                        case LT -> c < 0;
+                        case LE -> c <= 0;
+                        case GT -> c > 0;
+                        default -> c >= 0;
+                    };
+                }
+            };
+        }
+
+        private boolean holds(double x, double y) {
+            int c = Double.compare(x, y);
+            return switch (op) {
+                case EQ -> x == y;
+                case NE -> x != y;
+                case LT -> c < 0;
+                case LE -> c <= 0;
+                case GT -> c > 0;
+                case GE -> c >= 0;
+            };
+        }
+
+        private static Variable plainVariable(Expression e) {
+            if (e instanceof BareWord w) e = w.path();
+            return e instanceof Path p && p.steps().isEmpty() ? p.root() : null;
+        }
+    }
+
+    enum ArithOp { ADD, SUB, MUL, DIV, MOD }
+
+    record Arithmetic(Expression left, ArithOp op, Expression right) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            Object a = left.evaluate(context);
+            Object b = right.evaluate(context);
+            Number x = Values.number(a);
+            Number y = Values.number(b);
+
+            if (x == null || y == null) {
+                return op == ArithOp.ADD ? Values.string(a) + Values.string(b) : null;
+            }
+
+            if (Values.isIntegral(x) && Values.isIntegral(y)) {
+                long l = x.longValue();
+                long r = y.longValue();
+                switch (op) {
+                    case ADD: return l + r;
+                    case SUB: return l - r;
+                    case MUL: return l * r;
+                    case MOD: return r == 0 ? null : l % r;
+                    case DIV:
+                        if (r == 0) return null;
+                        if (l % r == 0) return l / r;
+                        break;
+                }
+            }
+
+            double l = x.doubleValue();
+            double r = y.doubleValue();
+            return switch (op) {
+                case ADD -> l + r;
+                case SUB -> l - r;
+                case MUL -> l * r;
+                case DIV -> r == 0 ? null : l / r;
+                case MOD -> r == 0 ? null : l % r;
+            };
+        }
+    }
+
+    record Call(String name, List<Expression> args) implements Expression {
+        public Object evaluate(ExecutionContext context) {
+            Object a = args.isEmpty() ? null : args.get(0).evaluate(context);
+            Object b = args.size() < 2 ? null : args.get(1).evaluate(context);
+            return switch (name) {
+                case "contains" -> a instanceof Collection<?> c
+                        ? c.stream().anyMatch(v -> Values.looseEquals(v, b))
+                        : a instanceof Map<?, ?> m ? m.containsKey(Values.string(b))
+                        : a != null && Values.string(a).contains(Values.string(b));
+                case "startsWith" -> a != null && Values.string(a).startsWith(Values.string(b));
+                case "endsWith" -> a != null && Values.string(a).endsWith(Values.string(b));
+                case "lower" -> a == null ? null : Values.string(a).toLowerCase();
+                case "upper" -> a == null ? null : Values.string(a).toUpperCase();
+                case "trim" -> a == null ? null : Values.string(a).trim();
+                case "len" -> a instanceof Collection<?> c ? c.size()
+                        : a instanceof Map<?, ?> m ? m.size()
+                        : a == null ? 0 : Values.string(a).length();
+                case "number" -> Values.number(a);
+                case "string" -> a == null ? null : Values.string(a);
+                default -> throw new IllegalStateException("Unknown function " + name);
+            };
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.miniflow.expr;
+
+import com.miniflow.context.ExecutionContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A condition compiled once into an evaluator tree. Supports ||, &&, !, comparisons, + - * / %,
+// parentheses, context paths (status, context.data.items[0].id) and a few string functions.
+public interface Expression {
+    Object evaluate(ExecutionContext context);
+
+    default boolean test(ExecutionContext context) {
+        return Values.truthy(evaluate(context));
+    }
+
+    static Expression compile(String source) {
+        Expression cached = Cache.COMPILED.get(source);
+        if (cached != null) return cached;
+
+        Expression compiled = new ExpressionParser(source).parse();
+        if (Cache.COMPILED.size() >= Cache.MAX_CACHED) Cache.COMPILED.clear();
+        Cache.COMPILED.put(source, compiled);
+        return compiled;
+    }
+
+    final class Cache {
+        private static final int MAX_CACHED = 4096;
+        private static final Map<String, Expression> COMPILED = new ConcurrentHashMap<>();
+
+        private Cache() {
+        }
+    }
+}
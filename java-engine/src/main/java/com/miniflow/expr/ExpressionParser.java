@@ -0,0 +1,260 @@
+package com.miniflow.expr;
+
+import com.miniflow.context.Variable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+final class ExpressionParser {
+    private static final Set<String> FUNCTIONS = Set.of(
+            "contains", "startsWith", "endsWith", "lower", "upper", "trim", "len", "number", "string");
+
+    private enum Kind { NUMBER, STRING, IDENT, SYMBOL, END }
+
+    private record Token(Kind kind, String text, Object value, int pos) {
+    }
+
+    private final String source;
+    private final List<Token> tokens;
+    private final Set<Expression> explicitPaths = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int index;
+
+    ExpressionParser(String source) {
+        this.source = source == null ? "" : source;
+        this.tokens = lex(this.source);
+    }
+
+    Expression parse() {
+        if (tokens.size() == 1) throw error("Empty expression", tokens.get(0));
+        Expression e = or();
+        if (peek().kind != Kind.END) throw error("Unexpected '" + peek().text + "'", peek());
+        return e;
+    }
+
+    private Expression or() {
+        Expression left = and();
+        while (accept("||") || acceptWord("or")) left = new Ast.Or(left, and());
+        return left;
+    }
+
+    private Expression and() {
+        Expression left = equality();
+        while (accept("&&") || acceptWord("and")) left = new Ast.And(left, equality());
+        return left;
+    }
+
+    private Expression equality() {
+        Expression left = relational();
+        while (true) {
+            if (accept("==")) left = new Ast.Compare(left, Ast.CompareOp.EQ, bareAware(relational()));
+            else if (accept("!=")) left = new Ast.Compare(left, Ast.CompareOp.NE, bareAware(relational()));
+            else return left;
+        }
+    }
+
+    private Expression relational() {
+        Expression left = additive();
+        while (true) {
+            Ast.CompareOp op;
+            if (accept("<=")) op = Ast.CompareOp.LE;
+            else if (accept(">=")) op = Ast.CompareOp.GE;
+            else if (accept("<")) op = Ast.CompareOp.LT;
+            else if (accept(">")) op = Ast.CompareOp.GT;
+            else return left;
+            left = new Ast.Compare(left, op, bareAware(additive()));
+        }
+    }
+
+    // Right-hand `ok` in `status == ok` has always meant the text "ok"; context.ok never does.
+    private Expression bareAware(Expression e) {
+        if (e instanceof Ast.Path p && p.steps().isEmpty() && !explicitPaths.contains(p)) return new Ast.BareWord(p);
+        return e;
+    }
+
+    private Expression additive() {
+        Expression left = multiplicative();
+        while (true) {
+            if (accept("+")) left = new Ast.Arithmetic(left, Ast.ArithOp.ADD, multiplicative());
+            else if (accept("-")) left = new Ast.Arithmetic(left, Ast.ArithOp.SUB, multiplicative());
+            else return left;
+        }
+    }
+
+    private Expression multiplicative() {
+        Expression left = unary();
+        while (true) {
+            if (accept("*")) left = new Ast.Arithmetic(left, Ast.ArithOp.MUL, unary());
+            else if (accept("/")) left = new Ast.Arithmetic(left, Ast.ArithOp.DIV, unary());
+            else if (accept("%")) left = new Ast.Arithmetic(left, Ast.ArithOp.MOD, unary());
+            else return left;
+        }
+    }
+
+    private Expression unary() {
+        if (accept("!") || acceptWord("not")) return new Ast.Not(unary());
+        if (accept("-")) return new Ast.Negate(unary());
+        return primary();
+    }
+
+    private Expression primary() {
+        Token t = next();
+        switch (t.kind) {
+            case NUMBER, STRING:
+                return new Ast.Literal(t.value);
+            case SYMBOL:
+                if (t.text.equals("(")) {
+                    Expression inner = or();
+                    expect(")");
+                    return inner;
+                }
+                throw error("Unexpected '" + t.text + "'", t);
+            case IDENT:
+                return identifier(t);
+            default:
+                throw error("Unexpected end of expression", t);
+        }
+    }
+
+    private Expression identifier(Token t) {
+        String name = t.text;
+        switch (name.toLowerCase()) {
+            case "true": return new Ast.Literal(Boolean.TRUE);
+            case "false": return new Ast.Literal(Boolean.FALSE);
+            case "null": return new Ast.Literal(null);
+            default: break;
+        }
+
+        if (accept("(")) {
+            if (!FUNCTIONS.contains(name)) throw error("Unknown function " + name, t);
+            List<Expression> args = new ArrayList<>(2);
+            if (!accept(")")) {
+                do {
+                    args.add(or());
+                } while (accept(","));
+                expect(")");
+            }
+            return new Ast.Call(name, List.copyOf(args));
+        }
+
+        boolean explicit = name.equals("context");
+        if (explicit) {
+            if (accept("[")) {
+                Token key = next();
+                if (key.kind != Kind.STRING) throw error("Expected a variable name", key);
+                expect("]");
+                name = (String) key.value;
+            } else {
+                expect(".");
+                Token root = next();
+                if (root.kind != Kind.IDENT) throw error("Expected a variable name", root);
+                name = root.text;
+            }
+        }
+
+        List<Object> steps = new ArrayList<>(2);
+        while (true) {
+            if (accept(".")) {
+                Token member = next();
+                if (member.kind != Kind.IDENT && member.kind != Kind.NUMBER) throw error("Expected a member name", member);
+                steps.add(member.text);
+            } else if (accept("[")) {
+                Expression key = or();
+                expect("]");
+                steps.add(key instanceof Ast.Literal l ? String.valueOf(l.value()) : key);
+            } else {
+                break;
+            }
+        }
+        Ast.Path path = new Ast.Path(Variable.of(name), List.copyOf(steps));
+        if (explicit) explicitPaths.add(path);
+        return path;
+    }
+
+    private boolean accept(String symbol) {
+        Token t = peek();
+        if (t.kind != Kind.SYMBOL || !t.text.equals(symbol)) return false;
+        index++;
+        return true;
+    }
+
+    private boolean acceptWord(String word) {
+        Token t = peek();
+        if (t.kind != Kind.IDENT || !t.text.equals(word)) return false;
+        index++;
+        return true;
+    }
+
+    private void expect(String symbol) {
+        if (!accept(symbol)) throw error("Expected '" + symbol + "'", peek());
+    }
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token next() {
+        Token t = tokens.get(index);
+        if (t.kind != Kind.END) index++;
+        return t;
+    }
+
+    private IllegalArgumentException error(String message, Token at) {
+        return new IllegalArgumentException(message + " at position " + at.pos + " in expression: " + source);
+    }
+
+    private static List<Token> lex(String s) {
+        List<Token> out = new ArrayList<>();
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+                boolean decimal = i + 1 < s.length() && s.charAt(i) == '.' && Character.isDigit(s.charAt(i + 1));
+                if (decimal) {
+                    i++;
+                    while (i < s.length() && Character.isDigit(s.charAt(i))) i++;
+                }
+                String text = s.substring(start, i);
+                Object value = decimal ? (Object) Double.valueOf(text) : (Object) Long.valueOf(text);
+                out.add(new Token(Kind.NUMBER, text, value, start));
+            } else if (c == '"' || c == '\'') {
+                int start = i++;
+                StringBuilder sb = new StringBuilder();
+                while (i < s.length() && s.charAt(i) != c) {
+                    char ch = s.charAt(i++);
+                    if (ch == '\\' && i < s.length()) ch = s.charAt(i++);
+                    sb.append(ch);
+                }
+                if (i >= s.length()) {
+                    throw new IllegalArgumentException("Unterminated string at position " + start + " in expression: " + s);
+                }
+                i++;
+                out.add(new Token(Kind.STRING, s.substring(start, i), sb.toString(), start));
+            } else if (Character.isLetter(c) || c == '_' || c == '$') {
+                int start = i;
+                while (i < s.length() && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '_' || s.charAt(i) == '$')) i++;
+                out.add(new Token(Kind.IDENT, s.substring(start, i), null, start));
+            } else {
+                String two = i + 1 < s.length() ? s.substring(i, i + 2) : "";
+                if (two.equals("==") || two.equals("!=") || two.equals("<=") || two.equals(">=")
+                        || two.equals("&&") || two.equals("||")) {
+                    out.add(new Token(Kind.SYMBOL, two, null, i));
+                    i += 2;
+                } else if ("()[].,!<>+-*/%".indexOf(c) >= 0) {
+                    out.add(new Token(Kind.SYMBOL, String.valueOf(c), null, i));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + c + "' at position " + i + " in expression: " + s);
+                }
+            }
+        }
+        out.add(new Token(Kind.END, "<end>", null, s.length()));
+        return out;
+    }
+}
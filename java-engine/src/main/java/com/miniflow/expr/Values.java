@@ -0,0 +1,74 @@
+package com.miniflow.expr;
+
+import java.util.Collection;
+import java.util.Map;
+
+final class Values {
+    private Values() {
+    }
+
+    static boolean truthy(Object v) {
+        if (v == null) return false;
+        if (v instanceof Boolean b) return b;
+        if (v instanceof Number n) return n.doubleValue() != 0;
+        if (v instanceof Collection<?> c) return !c.isEmpty();
+        if (v instanceof Map<?, ?> m) return !m.isEmpty();
+        String s = String.valueOf(v);
+        return !s.isEmpty() && !s.equalsIgnoreCase("false");
+    }
+
+    // Numbers, or strings that read as numbers; null otherwise. Parsed by hand to stay regex-free.
+    static Number number(Object v) {
+        if (v instanceof Number n) return n;
+        if (!(v instanceof String s)) return null;
+        String t = s.trim();
+        if (t.isEmpty()) return null;
+
+        int i = t.charAt(0) == '-' ? 1 : 0;
+        boolean digits = false;
+        boolean dot = false;
+        for (; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (c >= '0' && c <= '9') digits = true;
+            else if (c == '.' && !dot) dot = true;
+            else return null;
+        }
+        if (!digits) return null;
+        try {
+            return dot ? (Number) Double.valueOf(t) : (Number) Long.valueOf(t);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static boolean isIntegral(Number n) {
+        return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+    }
+
+    static boolean looseEquals(Object a, Object b) {
+        if (a == null || b == null) return a == b;
+        if (a instanceof Number || b instanceof Number) {
+            Number x = number(a);
+            Number y = number(b);
+            if (x != null && y != null) return x.doubleValue() == y.doubleValue();
+        }
+        if (a instanceof Boolean || b instanceof Boolean) {
+            return String.valueOf(a).equalsIgnoreCase(String.valueOf(b));
+        }
+        return String.valueOf(a).equals(String.valueOf(b));
+    }
+
+    // Returns null when the operands are not comparable.
+    static Integer compare(Object a, Object b) {
+        if (a == null || b == null) return null;
+        Number x = number(a);
+        Number y = number(b);
+        if (x != null && y != null) return Double.compare(x.doubleValue(), y.doubleValue());
+        if (a instanceof String s && b instanceof String t) return s.compareTo(t);
+        return null;
+    }
+
+    static String string(Object v) {
+        return v == null ? "" : String.valueOf(v);
+    }
+}
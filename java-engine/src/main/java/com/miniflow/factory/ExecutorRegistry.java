@@ -0,0 +1,115 @@
+package com.miniflow.factory;
+
+import com.miniflow.strategies.NodeExecutor;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Node executors discovered through ServiceLoader: the engine's own from its jar, plus any jars in
+// -Dminiflow.plugins (a directory). Built-in types win over plugins with the same name. Each
+// executor is a singleton; init runs on the first lookup of its type and close at JVM shutdown.
+public final class ExecutorRegistry {
+    private static volatile ExecutorRegistry shared;
+
+    private final Map<String, NodeExecutor> executors;
+    private final Set<NodeExecutor> initialized = ConcurrentHashMap.newKeySet();
+
+    public ExecutorRegistry(ClassLoader loader) {
+        Map<String, NodeExecutor> found = new TreeMap<>();
+        ServiceLoader<NodeExecutor> services = ServiceLoader.load(NodeExecutor.class, loader);
+        for (ServiceLoader.Provider<NodeExecutor> provider : services.stream().toList()) {
+            NodeExecutor executor;
+            try {
+                executor = provider.get();
+            } catch (ServiceConfigurationError e) {
+                System.err.println("PLUGIN_ERROR: " + e.getMessage());
+                continue;
+            }
+            String type = executor.type() == null ? "" : executor.type().toUpperCase(Locale.ROOT);
+            NodeExecutor previous = found.putIfAbsent(type, executor);
+            if (previous != null) {
+                System.err.println("PLUGIN_ERROR: " + executor.getClass().getName() + " ignorado, el tipo "
+                    + type + " ya lo implementa " + previous.getClass().getName());
+            }
+        }
+        this.executors = Map.copyOf(found);
+    }
+
+    public static ExecutorRegistry shared() {
+        ExecutorRegistry r = shared;
+        if (r == null) {
+            synchronized (ExecutorRegistry.class) {
+                if (shared == null) {
+                    ExecutorRegistry created = new ExecutorRegistry(pluginLoader(System.getProperty("miniflow.plugins")));
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::close, "miniflow-executors-close"));
+                    shared = created;
+                }
+                r = shared;
+            }
+        }
+        return r;
+    }
+
+    public NodeExecutor get(String type) {
+        String t = type == null ? "" : type.toUpperCase(Locale.ROOT);
+        NodeExecutor executor = executors.get(t);
+        if (executor == null) throw new IllegalArgumentException("Unknown type: " + type);
+        if (!initialized.contains(executor)) init(executor);
+        return executor;
+    }
+
+    public Set<String> types() {
+        return executors.keySet();
+    }
+
+    public void close() {
+        for (NodeExecutor executor : new ArrayList<>(initialized)) {
+            try {
+                executor.close();
+            } catch (RuntimeException e) {
+                System.err.println("PLUGIN_ERROR: " + e.getMessage());
+            }
+        }
+        initialized.clear();
+    }
+
+    private synchronized void init(NodeExecutor executor) {
+        if (initialized.contains(executor)) return;
+        try {
+            executor.init();
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo inicializar el nodo " + executor.type() + ": " + e.getMessage(), e);
+        }
+        initialized.add(executor);
+    }
+
+    private static ClassLoader pluginLoader(String dir) {
+        ClassLoader parent = ExecutorRegistry.class.getClassLoader();
+        if (dir == null || dir.isBlank()) return parent;
+        List<URL> jars = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Path.of(dir))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".jar")).sorted().toList()) {
+                jars.add(p.toUri().toURL());
+            }
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            System.err.println("PLUGIN_ERROR: " + dir + ": " + e.getMessage());
+        }
+        return jars.isEmpty() ? parent : new URLClassLoader(jars.toArray(URL[]::new), parent);
+    }
+}
@@ -0,0 +1,11 @@
+package com.miniflow.http;
+
+import java.io.IOException;
+
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String host) {
+        super("Circuito abierto para " + host);
+    }
+}
@@ -0,0 +1,159 @@
+package com.miniflow.http;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Sends the same request to several endpoints. With a hedge delay the next endpoint only fires if
+// the previous ones are still pending after that delay (or already failed); with delay 0 all fire
+// at once. The first accepted response wins and the remaining exchanges are cancelled.
+public class HedgedRequest<T> {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "miniflow-hedge-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public record Outcome<T>(String url, HttpResponse<T> response, int launched) {}
+
+    private final HttpClientPool pool;
+    private final List<String> urls;
+    private final Function<String, HttpRequest> requestFor;
+    private final HttpResponse.BodyHandler<T> handler;
+    private final Predicate<HttpResponse<T>> accept;
+    private final Consumer<HttpResponse<T>> discard;
+    private final long hedgeDelayMs;
+
+    private final CompletableFuture<Outcome<T>> result = new CompletableFuture<>();
+    private final List<CompletableFuture<HttpResponse<T>>> inflight = new ArrayList<>();
+    // The one pending hedge timer; every launch re-arms it, so a failure-triggered launch restarts the delay.
+    private ScheduledFuture<?> timer;
+    private int launched;
+    private int failed;
+    private Outcome<T> lastRejected;
+    private Throwable lastError;
+
+    public HedgedRequest(HttpClientPool pool, List<String> urls, Function<String, HttpRequest> requestFor,
+                         HttpResponse.BodyHandler<T> handler, Predicate<HttpResponse<T>> accept,
+                         Consumer<HttpResponse<T>> discard, long hedgeDelayMs) {
+        this.pool = pool;
+        this.urls = urls;
+        this.requestFor = requestFor;
+        this.handler = handler;
+        this.accept = accept;
+        this.discard = discard;
+        this.hedgeDelayMs = Math.max(0, hedgeDelayMs);
+    }
+
+    // Returns the winning response, or the last rejected one if every endpoint answered unacceptably.
+    public Outcome<T> execute() throws Exception {
+        if (hedgeDelayMs == 0) {
+            for (int i = 0; i < urls.size(); i++) launchNext();
+        } else {
+            launchNext();
+        }
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception ex) throw ex;
+            throw e;
+        } finally {
+            cancelAll();
+        }
+    }
+
+    private void launchNext() {
+        int index;
+        CompletableFuture<HttpResponse<T>> f;
+        synchronized (this) {
+            if (result.isDone() || launched >= urls.size()) return;
+            index = launched++;
+            try {
+                f = pool.sendAsync(requestFor.apply(urls.get(index)), handler);
+            } catch (RuntimeException e) {
+                f = CompletableFuture.failedFuture(e);
+            }
+            inflight.add(f);
+            if (timer != null) timer.cancel(false);
+            timer = hedgeDelayMs > 0 && index + 1 < urls.size()
+                ? TIMER.schedule(this::launchNext, hedgeDelayMs, TimeUnit.MILLISECONDS)
+                : null;
+        }
+
+        f.whenComplete((r, e) -> onComplete(index, r, e));
+    }
+
+    // Responses that lose (late, rejected or superseded) are handed to discard so their bodies are released.
+    private void onComplete(int index, HttpResponse<T> response, Throwable error) {
+        if (result.isDone()) {
+            if (response != null) discard.accept(response);
+            return;
+        }
+
+        if (error == null && accept.test(response)) {
+            if (result.complete(new Outcome<>(urls.get(index), response, launched()))) {
+                Outcome<T> stale;
+                synchronized (this) {
+                    stale = lastRejected;
+                    lastRejected = null;
+                }
+                if (stale != null) discard.accept(stale.response());
+            } else {
+                discard.accept(response);
+            }
+            return;
+        }
+
+        boolean exhausted;
+        Outcome<T> superseded = null;
+        synchronized (this) {
+            failed++;
+            if (error == null) {
+                superseded = lastRejected;
+                lastRejected = new Outcome<>(urls.get(index), response, launched);
+            } else {
+                lastError = unwrap(error);
+            }
+            exhausted = failed >= urls.size();
+        }
+        if (superseded != null) discard.accept(superseded.response());
+
+        if (!exhausted) {
+            launchNext();
+            return;
+        }
+        synchronized (this) {
+            if (lastRejected != null) result.complete(lastRejected);
+            else result.completeExceptionally(lastError);
+        }
+    }
+
+    private synchronized int launched() {
+        return launched;
+    }
+
+    private synchronized void cancelAll() {
+        if (timer != null) timer.cancel(false);
+        for (CompletableFuture<HttpResponse<T>> f : inflight) f.cancel(true);
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,412 @@
+package com.miniflow.http;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Private HTTP cache for GET responses: a byte-bounded LRU in memory backed by an optional directory
+// that survives restarts. Freshness follows Cache-Control (no-store, no-cache, max-age), Expires and
+// Age; stale entries with an ETag or Last-Modified are revalidated with a conditional request.
+public final class HttpCache {
+    private static final HttpCache SHARED = createShared();
+    private static final int MAGIC = 0x4d464331;
+    private static final long ENTRY_OVERHEAD = 256;
+    private static final Set<String> CREDENTIAL_HEADERS = Set.of("authorization", "proxy-authorization", "cookie", "x-api-key");
+
+    // Opt-in per node: without a `cache` key nothing is cached. ttlMs applies when the response carries
+    // no freshness information; with force it replaces whatever the server said, including no-store.
+    // Responses to requests with credentials stay in memory unless persistAuthenticated is set.
+    public record Policy(boolean enabled, long ttlMs, boolean force, boolean persistAuthenticated) {
+        public static final Policy OFF = new Policy(false, 0, false, false);
+        public static final Policy DEFAULT = new Policy(true, 0, false, false);
+
+        public static Policy fromConfig(Object config) {
+            if (config == null) return OFF;
+            if (Boolean.TRUE.equals(config)) return DEFAULT;
+            if (config instanceof Number n) return new Policy(true, n.longValue() * 1000, false, false);
+            if (config instanceof Map<?, ?> m) {
+                if (isFalse(m.get("enabled"))) return OFF;
+                long ttl = m.get("ttlMs") != null ? asLong(m.get("ttlMs")) : asLong(m.get("ttlSeconds")) * 1000;
+                return new Policy(true, Math.max(0, ttl), "true".equalsIgnoreCase(String.valueOf(m.get("force"))),
+                    "true".equalsIgnoreCase(String.valueOf(m.get("persistAuthenticated"))));
+            }
+            return isFalse(config) || String.valueOf(config).isBlank() ? OFF : DEFAULT;
+        }
+    }
+
+    // persist is false for entries that must never reach the disk layer.
+    public record Entry(String key, String url, int status, String contentType, String etag, String lastModified,
+                        long storedAtMs, long freshUntilMs, byte[] body, boolean persist) {
+        public boolean isFresh() {
+            return System.currentTimeMillis() < freshUntilMs;
+        }
+
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        long weight() {
+            return body.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Path dir;
+    private final long maxDiskBytes;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskLoads = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong revalidated = new AtomicLong();
+
+    public HttpCache(long maxBytes, Path dir, long maxDiskBytes) {
+        this(maxBytes, maxBytes / 8, dir, maxDiskBytes);
+    }
+
+    public HttpCache(long maxBytes, long maxEntryBytes, Path dir, long maxDiskBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = Math.max(0, maxEntryBytes);
+        this.dir = dir;
+        this.maxDiskBytes = Math.max(0, maxDiskBytes);
+    }
+
+    public static HttpCache shared() {
+        return SHARED;
+    }
+
+    private static HttpCache createShared() {
+        long maxBytes = Long.getLong("miniflow.http.cache.maxBytes", 64L * 1024 * 1024);
+        long maxDisk = Long.getLong("miniflow.http.cache.maxDiskBytes", 512L * 1024 * 1024);
+        String dir = System.getProperty("miniflow.http.cache.dir");
+        long maxEntry = Long.getLong("miniflow.http.cache.maxEntryBytes", maxBytes / 8);
+        return new HttpCache(maxBytes, maxEntry, dir == null || dir.isBlank() ? null : Path.of(dir), maxDisk);
+    }
+
+    // Request headers are part of the key: the same URL fetched with different credentials or Accept
+    // values is a different resource as far as this cache is concerned. Credentials enter it only as a
+    // hash, since the key is written into the entry file.
+    public static String key(String url, Object headers) {
+        StringBuilder sb = new StringBuilder("GET ").append(url);
+        if (headers instanceof Map<?, ?> m && !m.isEmpty()) {
+            Map<String, String> sorted = new TreeMap<>();
+            m.forEach((k, v) -> {
+                if (k == null || v == null) return;
+                String name = String.valueOf(k).toLowerCase(Locale.ROOT);
+                sorted.put(name, CREDENTIAL_HEADERS.contains(name) ? "sha256:" + sha256(String.valueOf(v)) : String.valueOf(v));
+            });
+            sorted.forEach((k, v) -> sb.append('\n').append(k).append(": ").append(v));
+        }
+        return sb.toString();
+    }
+
+    public static boolean authenticated(Object headers) {
+        if (!(headers instanceof Map<?, ?> m)) return false;
+        for (Map.Entry<?, ?> e : m.entrySet()) {
+            if (e.getKey() != null && e.getValue() != null
+                    && CREDENTIAL_HEADERS.contains(String.valueOf(e.getKey()).toLowerCase(Locale.ROOT))) return true;
+        }
+        return false;
+    }
+
+    // Bodies larger than this are not cached at all.
+    public long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public Entry get(String key) {
+        synchronized (this) {
+            Entry e = memory.get(key);
+            if (e != null) return e;
+        }
+        Entry e = readDisk(key);
+        if (e != null) remember(e);
+        return e;
+    }
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public boolean isStorable(int status, HttpHeaders headers, Policy policy) {
+        if (!policy.enabled() || status != 200) return false;
+        if (policy.force()) return true;
+        if (headers.firstValue("Vary").map(v -> v.trim().equals("*")).orElse(false)) return false;
+        long now = System.currentTimeMillis();
+        long fresh = freshUntil(headers, now, policy);
+        return fresh >= 0 && (fresh > now || validators(headers));
+    }
+
+    public Entry store(String key, String url, int status, HttpHeaders headers, byte[] body, Policy policy,
+                       boolean authenticated) {
+        stored.incrementAndGet();
+        long now = System.currentTimeMillis();
+        Entry e = new Entry(key, url, status, headers.firstValue("Content-Type").orElse(null),
+                headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null),
+                now, freshUntil(headers, now, policy), body, !authenticated || policy.persistAuthenticated());
+        remember(e);
+        writeDisk(e);
+        return e;
+    }
+
+    // A 304 refreshes the stored metadata; the body stays as it was. When the 304 carries no
+    // freshness headers of its own, the lifetime granted by the original response still applies.
+    public Entry revalidated(Entry stale, HttpHeaders headers, Policy policy) {
+        revalidated.incrementAndGet();
+        long now = System.currentTimeMillis();
+        boolean explicit = headers.firstValue("Cache-Control").isPresent() || headers.firstValue("Expires").isPresent();
+        long fresh = explicit || policy.force()
+                ? freshUntil(headers, now, policy)
+                : now + Math.max(0, stale.freshUntilMs() - stale.storedAtMs());
+        Entry e = new Entry(stale.key(), stale.url(), stale.status(), stale.contentType(),
+                headers.firstValue("ETag").orElse(stale.etag()),
+                headers.firstValue("Last-Modified").orElse(stale.lastModified()),
+                now, Math.max(now, fresh), stale.body(), stale.persist());
+        if (fresh < 0) {
+            invalidate(stale.key());
+        } else {
+            remember(e);
+            writeDisk(e);
+        }
+        return e;
+    }
+
+    public void invalidate(String key) {
+        synchronized (this) {
+            Entry e = memory.remove(key);
+            if (e != null) memoryBytes -= e.weight();
+        }
+        if (dir != null) {
+            try {
+                Files.deleteIfExists(fileFor(key));
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public static HttpRequest conditional(HttpRequest request, Entry stale) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(request, (k, v) -> true);
+        if (stale.etag() != null) b.setHeader("If-None-Match", stale.etag());
+        if (stale.lastModified() != null) b.setHeader("If-Modified-Since", stale.lastModified());
+        return b.build();
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("entries", memory.size());
+        out.put("bytes", memoryBytes);
+        out.put("hits", hits.get());
+        out.put("diskLoads", diskLoads.get());
+        out.put("stored", stored.get());
+        out.put("revalidated", revalidated.get());
+        if (dir != null) out.put("diskBytes", Math.max(0, diskBytes.get()));
+        return out;
+    }
+
+    // -1 when the response must not be stored, otherwise the epoch millis it stays fresh until.
+    static long freshUntil(HttpHeaders headers, long now, Policy policy) {
+        if (policy.force()) return now + policy.ttlMs();
+
+        Map<String, String> cc = cacheControl(headers);
+        if (cc.containsKey("no-store")) return -1;
+        if (cc.containsKey("no-cache")) return now;
+
+        long age = headers.firstValue("Age").map(HttpCache::asLong).orElse(0L) * 1000;
+        String maxAge = cc.get("max-age");
+        if (maxAge != null) return now + Math.max(0, asLong(maxAge) * 1000 - age);
+
+        Optional<String> expires = headers.firstValue("Expires");
+        if (expires.isPresent()) {
+            long at = parseDate(expires.get());
+            if (at < 0) return now;
+            long date = headers.firstValue("Date").map(HttpCache::parseDate).orElse(-1L);
+            return now + Math.max(0, at - (date < 0 ? now : date) - age);
+        }
+        return policy.ttlMs() > 0 ? now + policy.ttlMs() : now;
+    }
+
+    private static boolean validators(HttpHeaders headers) {
+        return headers.firstValue("ETag").isPresent() || headers.firstValue("Last-Modified").isPresent();
+    }
+
+    private static Map<String, String> cacheControl(HttpHeaders headers) {
+        Map<String, String> out = new LinkedHashMap<>();
+        for (String value : headers.allValues("Cache-Control")) {
+            for (String part : value.split(",")) {
+                String p = part.trim();
+                if (p.isEmpty()) continue;
+                int eq = p.indexOf('=');
+                String name = (eq < 0 ? p : p.substring(0, eq)).trim().toLowerCase(Locale.ROOT);
+                String arg = eq < 0 ? "" : p.substring(eq + 1).trim().replace("\"", "");
+                out.put(name, arg);
+            }
+        }
+        return out;
+    }
+
+    private static long parseDate(String v) {
+        try {
+            return ZonedDateTime.parse(v.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (Exception ignored) {
+            return -1;
+        }
+    }
+
+    private void remember(Entry e) {
+        if (e.body().length > maxEntryBytes || e.weight() > maxBytes) return;
+        synchronized (this) {
+            Entry old = memory.put(e.key(), e);
+            if (old != null) memoryBytes -= old.weight();
+            memoryBytes += e.weight();
+            Iterator<Entry> it = memory.values().iterator();
+            while (memoryBytes > maxBytes && it.hasNext()) {
+                memoryBytes -= it.next().weight();
+                it.remove();
+            }
+        }
+    }
+
+    private Entry readDisk(String key) {
+        if (dir == null) return null;
+        Path file = fileFor(key);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || !in.readUTF().equals(key)) return null;
+            String url = in.readUTF();
+            int status = in.readInt();
+            String contentType = nullable(in.readUTF());
+            String etag = nullable(in.readUTF());
+            String lastModified = nullable(in.readUTF());
+            long storedAt = in.readLong();
+            long freshUntil = in.readLong();
+            byte[] body = in.readNBytes(in.readInt());
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            diskLoads.incrementAndGet();
+            return new Entry(key, url, status, contentType, etag, lastModified, storedAt, freshUntil, body, true);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Written to a temp file and moved into place so a crash never leaves a torn entry behind.
+    private void writeDisk(Entry e) {
+        if (dir == null || !e.persist()) return;
+        try {
+            Files.createDirectories(dir);
+            Path file = fileFor(e.key());
+            Path tmp = Files.createTempFile(dir, "entry", ".tmp");
+            try (OutputStream os = Files.newOutputStream(tmp); DataOutputStream out = new DataOutputStream(os)) {
+                out.writeInt(MAGIC);
+                out.writeUTF(e.key());
+                out.writeUTF(e.url());
+                out.writeInt(e.status());
+                out.writeUTF(e.contentType() == null ? "" : e.contentType());
+                out.writeUTF(e.etag() == null ? "" : e.etag());
+                out.writeUTF(e.lastModified() == null ? "" : e.lastModified());
+                out.writeLong(e.storedAtMs());
+                out.writeLong(e.freshUntilMs());
+                out.writeInt(e.body().length);
+                out.write(e.body());
+            }
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.get() < 0) diskBytes.compareAndSet(-1, scanDisk());
+            else diskBytes.addAndGet(Files.size(file) - previous);
+            if (diskBytes.get() > maxDiskBytes) trimDisk();
+        } catch (IOException ex) {
+            System.err.println("HTTP_CACHE_ERROR: " + ex.getMessage());
+        }
+    }
+
+    private long scanDisk() throws IOException {
+        long total = 0;
+        for (Path p : entries()) total += Files.size(p);
+        return total;
+    }
+
+    // Least recently read files go first until the directory is back under 90% of its budget.
+    private synchronized void trimDisk() throws IOException {
+        List<Path> files = entries();
+        files.sort(Comparator.comparingLong(HttpCache::lastModified));
+        long total = scanDisk();
+        for (Path p : files) {
+            if (total <= maxDiskBytes * 9 / 10) break;
+            long size = Files.size(p);
+            if (Files.deleteIfExists(p)) total -= size;
+        }
+        diskBytes.set(total);
+    }
+
+    private List<Path> entries() throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            return new ArrayList<>(s.filter(p -> p.getFileName().toString().endsWith(".entry")).toList());
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path fileFor(String key) {
+        return dir.resolve(sha256(key) + ".entry");
+    }
+
+    private static String sha256(String s) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String nullable(String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    private static boolean isFalse(Object v) {
+        if (v == null) return false;
+        String s = String.valueOf(v).trim();
+        return s.equalsIgnoreCase("false") || s.equalsIgnoreCase("off") || s.equalsIgnoreCase("no");
+    }
+
+    private static long asLong(Object v) {
+        if (v == null) return 0;
+        if (v instanceof Number n) return n.longValue();
+        try {
+            return Long.parseLong(String.valueOf(v).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.miniflow.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One HttpClient per distinct settings, shared by every node and run, so connections (and HTTP/2
+// streams) are reused. Settings resolve by longest matching base URL, then by host, then defaults.
+// Each host also gets a connection cap and a circuit breaker that outlive individual runs.
+public class HttpClientPool {
+    private static final HttpClientPool SHARED = createShared();
+
+    private final ExecutorService executor;
+    private volatile HttpClientSettings defaults = HttpClientSettings.DEFAULT;
+    private final Map<String, HttpClientSettings> byBaseUrl = new ConcurrentHashMap<>();
+    private final Map<String, HttpClientSettings> byHost = new ConcurrentHashMap<>();
+    private final Map<HttpClientSettings, HttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+
+    public HttpClientPool() {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "miniflow-http-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static HttpClientPool shared() {
+        return SHARED;
+    }
+
+    private static HttpClientPool createShared() {
+        HttpClientPool pool = new HttpClientPool();
+        String config = System.getProperty("miniflow.http.config");
+        if (config != null && !config.isBlank()) {
+            try {
+                pool.loadConfig(Path.of(config), new ObjectMapper());
+            } catch (IOException e) {
+                System.err.println("HTTP_CONFIG_ERROR: " + e.getMessage());
+            }
+        }
+        // Must be set before the first HttpClient is built; the JDK reads it once.
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", "300");
+        }
+        return pool;
+    }
+
+    public void loadConfig(Path file, ObjectMapper mapper) throws IOException {
+        Map<?, ?> root = mapper.readValue(Files.readAllBytes(file), Map.class);
+
+        Object keepAlive = root.get("keepAliveSeconds");
+        if (keepAlive != null) System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive));
+
+        if (root.get("defaults") instanceof Map<?, ?> d) configureDefaults(HttpClientSettings.fromMap(d, HttpClientSettings.DEFAULT));
+        if (root.get("hosts") instanceof Map<?, ?> h) {
+            for (Map.Entry<?, ?> e : h.entrySet()) {
+                if (e.getKey() == null || !(e.getValue() instanceof Map<?, ?> m)) continue;
+                configure(String.valueOf(e.getKey()), HttpClientSettings.fromMap(m, defaults));
+            }
+        }
+    }
+
+    public void configureDefaults(HttpClientSettings settings) {
+        this.defaults = settings;
+    }
+
+    public void configure(String hostOrBaseUrl, HttpClientSettings settings) {
+        if (hostOrBaseUrl.contains("://")) byBaseUrl.put(hostOrBaseUrl, settings);
+        else byHost.put(hostOrBaseUrl.toLowerCase(Locale.ROOT), settings);
+    }
+
+    public HttpClientSettings settingsFor(URI uri) {
+        if (!byBaseUrl.isEmpty()) {
+            String url = uri.toString();
+            String best = null;
+            for (String base : byBaseUrl.keySet()) {
+                if (url.startsWith(base) && (best == null || base.length() > best.length())) best = base;
+            }
+            if (best != null) return byBaseUrl.get(best);
+        }
+        if (uri.getHost() != null) {
+            HttpClientSettings s = byHost.get(uri.getHost().toLowerCase(Locale.ROOT));
+            if (s != null) return s;
+        }
+        return defaults;
+    }
+
+    public HttpClient clientFor(URI uri) {
+        return clients.computeIfAbsent(settingsFor(uri), this::build);
+    }
+
+    // The host slot is held until the body has been read or its stream closed, not just until the
+    // headers arrive, so the cap counts connections actually in use.
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        URI uri = request.uri();
+        HostStats stats = statsFor(uri);
+        if (!stats.breaker.tryAcquire()) throw new CircuitOpenException(hostKey(uri));
+
+        try {
+            stats.acquire();
+        } catch (InterruptedException e) {
+            stats.breaker.onIgnored();
+            throw e;
+        }
+        Runnable release = releaseOnce(stats);
+        long t0 = System.nanoTime();
+        try {
+            HttpResponse<T> response = clientFor(uri).send(request, holding(handler, release));
+            stats.succeeded(t0, response.statusCode());
+            return response;
+        } catch (IOException e) {
+            release.run();
+            stats.failed(true);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            release.run();
+            stats.failed(false);
+            throw e;
+        }
+    }
+
+    // Cancelling the returned future cancels the underlying exchange (or the wait for a host slot).
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+        URI uri = request.uri();
+        HostStats stats = statsFor(uri);
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        if (!stats.breaker.tryAcquire()) {
+            result.completeExceptionally(new CircuitOpenException(hostKey(uri)));
+            return result;
+        }
+
+        CompletableFuture<Void> permit = stats.tryAcquire()
+            ? CompletableFuture.completedFuture(null)
+            : CompletableFuture.runAsync(stats::acquireUninterruptibly, executor);
+
+        permit.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                stats.breaker.onIgnored();
+                result.completeExceptionally(failure);
+                return;
+            }
+            if (result.isDone()) {
+                stats.release();
+                stats.breaker.onIgnored();
+                return;
+            }
+            Runnable release = releaseOnce(stats);
+            long t0 = System.nanoTime();
+            CompletableFuture<HttpResponse<T>> exchange;
+            try {
+                exchange = clientFor(uri).sendAsync(request, holding(handler, release));
+            } catch (Throwable e) {
+                release.run();
+                stats.failed(false);
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((r, e) -> {
+                if (result.isCancelled()) exchange.cancel(true);
+            });
+            exchange.whenComplete((r, e) -> {
+                if (e == null) {
+                    stats.succeeded(t0, r.statusCode());
+                    if (!result.complete(r)) discard(r, release);
+                } else {
+                    release.run();
+                    stats.failed(!result.isCancelled() && unwrap(e) instanceof IOException);
+                    result.completeExceptionally(e);
+                }
+            });
+        });
+        return result;
+    }
+
+    public CircuitBreaker.State breakerState(URI uri) {
+        return statsFor(uri).breaker.state();
+    }
+
+    public long latencyPercentile(URI uri, double percentile, int minSamples) {
+        return statsFor(uri).latency.percentile(percentile, minSamples);
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new TreeMap<>();
+        hosts.forEach((host, s) -> out.put(host, s.snapshot()));
+        return out;
+    }
+
+    private HostStats statsFor(URI uri) {
+        String key = hostKey(uri);
+        return hosts.computeIfAbsent(key, k -> new HostStats(settingsFor(uri)));
+    }
+
+    private static Runnable releaseOnce(HostStats stats) {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) stats.release();
+        };
+    }
+
+    // Runs `release` once the body subscriber is done: completed, failed, or cancelled because the
+    // caller closed the stream early.
+    private static <T> HttpResponse.BodyHandler<T> holding(HttpResponse.BodyHandler<T> handler, Runnable release) {
+        return info -> {
+            HttpResponse.BodySubscriber<T> inner = handler.apply(info);
+            return new HttpResponse.BodySubscriber<>() {
+                @Override
+                public CompletionStage<T> getBody() {
+                    return inner.getBody();
+                }
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    inner.onSubscribe(new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {
+                            subscription.request(n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            release.run();
+                            subscription.cancel();
+                        }
+                    });
+                }
+
+                @Override
+                public void onNext(List<ByteBuffer> item) {
+                    inner.onNext(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    release.run();
+                    inner.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    release.run();
+                    inner.onComplete();
+                }
+            };
+        };
+    }
+
+    // A response nobody will read (the caller gave up): close its stream so the connection and the
+    // host slot are freed.
+    private static void discard(HttpResponse<?> response, Runnable release) {
+        if (response.body() instanceof AutoCloseable body) {
+            try {
+                body.close();
+            } catch (Exception ignored) {
+            }
+        }
+        release.run();
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) t = t.getCause();
+        return t;
+    }
+
+    public static String hostKey(URI uri) {
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        if (port < 0) port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        return host + ":" + port;
+    }
+
+    private HttpClient build(HttpClientSettings settings) {
+        return HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(settings.connectTimeoutMs))
+            .version(settings.version)
+            .followRedirects(settings.followRedirects ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER)
+            .executor(executor)
+            .build();
+    }
+
+    static class HostStats {
+        private final Semaphore permits;
+        private final int maxConnections;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong waits = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peakActive = new AtomicInteger();
+        final LatencyTracker latency = new LatencyTracker(256);
+        final CircuitBreaker breaker;
+
+        HostStats(HttpClientSettings settings) {
+            this.maxConnections = settings.maxConnectionsPerHost;
+            this.permits = new Semaphore(maxConnections, true);
+            this.breaker = new CircuitBreaker(settings.breakerFailureThreshold, settings.breakerOpenMs);
+        }
+
+        void acquire() throws InterruptedException {
+            if (!permits.tryAcquire()) {
+                long t0 = System.nanoTime();
+                waits.incrementAndGet();
+                permits.acquire();
+                waitNanos.addAndGet(System.nanoTime() - t0);
+            }
+            acquired();
+        }
+
+        boolean tryAcquire() {
+            if (!permits.tryAcquire()) return false;
+            acquired();
+            return true;
+        }
+
+        void acquireUninterruptibly() {
+            long t0 = System.nanoTime();
+            waits.incrementAndGet();
+            permits.acquireUninterruptibly();
+            waitNanos.addAndGet(System.nanoTime() - t0);
+            acquired();
+        }
+
+        private void acquired() {
+            int now = active.incrementAndGet();
+            peakActive.accumulateAndGet(now, Math::max);
+        }
+
+        // 5xx and 429 mean the host is struggling; any other answer proves it is up.
+        void succeeded(long startNanos, int status) {
+            requests.incrementAndGet();
+            latency.record((System.nanoTime() - startNanos) / 1_000_000);
+            if (status >= 500 || status == 429) breaker.onFailure();
+            else breaker.onSuccess();
+        }
+
+        void failed(boolean hostFault) {
+            failures.incrementAndGet();
+            if (hostFault) breaker.onFailure();
+            else breaker.onIgnored();
+        }
+
+        void release() {
+            active.decrementAndGet();
+            permits.release();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> m = new TreeMap<>();
+            m.put("maxConnections", maxConnections);
+            m.put("active", active.get());
+            m.put("peakActive", peakActive.get());
+            m.put("requests", requests.get());
+            m.put("failures", failures.get());
+            m.put("waits", waits.get());
+            m.put("waitMs", waitNanos.get() / 1_000_000);
+            m.put("p50Ms", latency.percentile(50, 1));
+            m.put("p99Ms", latency.percentile(99, 1));
+            m.put("circuit", breaker.state().name());
+            m.put("circuitRejected", breaker.rejected());
+            return m;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.miniflow.http;
+
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.Objects;
+
+public class HttpClientSettings {
+    public static final HttpClientSettings DEFAULT = new HttpClientSettings(10_000, HttpClient.Version.HTTP_2, 64, true, 5, 30_000);
+
+    public final int connectTimeoutMs;
+    public final HttpClient.Version version;
+    public final int maxConnectionsPerHost;
+    public final boolean followRedirects;
+    public final int breakerFailureThreshold;
+    public final int breakerOpenMs;
+
+    public HttpClientSettings(int connectTimeoutMs, HttpClient.Version version, int maxConnectionsPerHost, boolean followRedirects,
+                              int breakerFailureThreshold, int breakerOpenMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.version = version;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.followRedirects = followRedirects;
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenMs = breakerOpenMs;
+    }
+
+    public static HttpClientSettings fromMap(Map<?, ?> m, HttpClientSettings defaults) {
+        if (m == null) return defaults;
+
+        int connect = asInt(m.get("connectTimeoutMs"), defaults.connectTimeoutMs);
+        int maxConn = asInt(m.get("maxConnectionsPerHost"), defaults.maxConnectionsPerHost);
+        int breakerThreshold = asInt(m.get("breakerFailureThreshold"), defaults.breakerFailureThreshold);
+        int breakerOpen = asInt(m.get("breakerOpenMs"), defaults.breakerOpenMs);
+        boolean follow = m.get("followRedirects") == null ? defaults.followRedirects : Boolean.parseBoolean(String.valueOf(m.get("followRedirects")));
+
+        HttpClient.Version version = defaults.version;
+        Object v = m.get("version");
+        if (v != null) {
+            String s = String.valueOf(v).trim().toUpperCase().replace('.', '_').replace('/', '_');
+            version = s.startsWith("HTTP_1") ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2;
+        }
+
+        return new HttpClientSettings(connect, version, Math.max(1, maxConn), follow, breakerThreshold, breakerOpen);
+    }
+
+    private static int asInt(Object v, int fallback) {
+        if (v == null) return fallback;
+        if (v instanceof Number n) return n.intValue();
+        try {
+            return Integer.parseInt(String.valueOf(v).trim());
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HttpClientSettings that)) return false;
+        return connectTimeoutMs == that.connectTimeoutMs
+            && maxConnectionsPerHost == that.maxConnectionsPerHost
+            && followRedirects == that.followRedirects
+            && breakerFailureThreshold == that.breakerFailureThreshold
+            && breakerOpenMs == that.breakerOpenMs
+            && version == that.version;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connectTimeoutMs, version, maxConnectionsPerHost, followRedirects, breakerFailureThreshold, breakerOpenMs);
+    }
+}
@@ -0,0 +1,36 @@
+package com.miniflow.http;
+
+import java.util.Arrays;
+
+// Sliding window of recent request latencies, enough to pick a hedging delay from a percentile.
+public class LatencyTracker {
+    private final long[] samples;
+    private int next;
+    private int count;
+
+    public LatencyTracker(int window) {
+        this.samples = new long[window];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    // Returns -1 until at least minSamples were recorded.
+    public long percentile(double p, int minSamples) {
+        long[] copy;
+        synchronized (this) {
+            if (count < minSamples || count == 0) return -1;
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(Math.min(100, Math.max(0, p)) / 100.0 * copy.length) - 1;
+        return copy[Math.max(0, idx)];
+    }
+}
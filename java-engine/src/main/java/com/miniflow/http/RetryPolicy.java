@@ -0,0 +1,117 @@
+package com.miniflow.http;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryPolicy {
+    public enum Jitter { NONE, FULL, EQUAL }
+
+    private static final Set<Integer> DEFAULT_RETRY_STATUS = Set.of(408, 425, 429, 500, 502, 503, 504);
+    private static final long MAX_RETRY_AFTER_MS = 60_000;
+
+    public final int maxRetries;
+    public final long baseDelayMs;
+    public final long maxDelayMs;
+    public final Jitter jitter;
+    private final Set<Integer> retryOnStatus;
+
+    public RetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs, Jitter jitter, Set<Integer> retryOnStatus) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseDelayMs = Math.max(0, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.jitter = jitter;
+        this.retryOnStatus = retryOnStatus;
+    }
+
+    public static RetryPolicy fromConfig(Map<String, Object> config) {
+        int retries = asInt(config.get("retries"), 0);
+        long base = asInt(config.get("retryBackoffMs"), 100);
+        long max = asInt(config.get("retryMaxBackoffMs"), 5_000);
+
+        Jitter jitter = Jitter.FULL;
+        Object j = config.get("retryJitter");
+        if (j != null) {
+            try {
+                jitter = Jitter.valueOf(String.valueOf(j).trim().toUpperCase());
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+
+        Set<Integer> statuses = DEFAULT_RETRY_STATUS;
+        if (config.get("retryOn") instanceof List<?> list) {
+            statuses = new HashSet<>();
+            for (Object o : list) {
+                int code = asInt(o, -1);
+                if (code > 0) statuses.add(code);
+            }
+        }
+
+        return new RetryPolicy(retries, base, max, jitter, statuses);
+    }
+
+    public boolean isRetryable(int status) {
+        return retryOnStatus.contains(status);
+    }
+
+    // Transport failures are worth another try; an open circuit or a malformed request is not.
+    public boolean isRetryable(Throwable error) {
+        if (error instanceof CircuitOpenException) return false;
+        return error instanceof IOException;
+    }
+
+    public long delayMs(int attempt, HttpResponse<?> response) {
+        if (response != null) {
+            long retryAfter = retryAfterMs(response);
+            if (retryAfter >= 0) return Math.min(retryAfter, MAX_RETRY_AFTER_MS);
+        }
+
+        long exp = baseDelayMs * (1L << Math.min(attempt, 20));
+        long capped = Math.min(maxDelayMs, exp);
+        return switch (jitter) {
+            case NONE -> capped;
+            case FULL -> ThreadLocalRandom.current().nextLong(capped + 1);
+            case EQUAL -> capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+        };
+    }
+
+    public void sleep(int attempt, HttpResponse<?> response) throws InterruptedException {
+        long delay = delayMs(attempt, response);
+        if (delay > 0) Thread.sleep(delay);
+    }
+
+    static long retryAfterMs(HttpResponse<?> response) {
+        Optional<String> header = response.headers().firstValue("Retry-After");
+        if (header.isEmpty()) return -1;
+
+        String v = header.get().trim();
+        try {
+            return Long.parseLong(v) * 1000;
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (Exception ignored) {
+            return -1;
+        }
+    }
+
+    private static int asInt(Object v, int fallback) {
+        if (v == null) return fallback;
+        if (v instanceof Number n) return n.intValue();
+        try {
+            return Integer.parseInt(String.valueOf(v).trim());
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.miniflow.journal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.memo.ContentDigest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only record of a run's completed nodes, so a run that stopped can continue where it left
+// off. Each record is framed as [length][crc32][json]; a torn tail from a crash fails the check and
+// is cut off on reopen. Appends from parallel branches share one fsync (group commit). Every
+// snapshotEvery records the completed set is written to <runId>.snapshot and the log restarts, so
+// recovery reads one snapshot plus a short tail.
+public final class RunJournal implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String LOG = ".journal";
+    private static final String SNAPSHOT = ".snapshot";
+    private static final int MAX_RECORD = 256 * 1024 * 1024;
+
+    // A completed node occurrence. config and reads are digests; writes are the context delta.
+    public record Completed(String node, int occurrence, String config, Map<String, String> reads,
+                            Map<String, Object> writes) {
+    }
+
+    private final Path dir;
+    private final String runId;
+    private final String workflow;
+    private final boolean sync;
+    private final int snapshotEvery;
+    private final Map<String, Completed> completed = new LinkedHashMap<>();
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private volatile long appended;
+    private long synced;
+    private int sinceSnapshot;
+    private int resumedFrom;
+
+    private RunJournal(Path dir, String runId, String workflow) {
+        this.dir = dir;
+        this.runId = runId;
+        this.workflow = workflow;
+        this.sync = !"false".equalsIgnoreCase(System.getProperty("miniflow.journal.sync"));
+        this.snapshotEvery = Math.max(1, Integer.getInteger("miniflow.journal.snapshotEvery", 64));
+    }
+
+    public static RunJournal create(Path dir, String workflow) throws IOException {
+        RunJournal j = new RunJournal(dir, UUID.randomUUID().toString(), workflow);
+        Files.createDirectories(dir);
+        j.openLog(true);
+        return j;
+    }
+
+    // runId "latest" picks the most recently written journal of a workflow with the same name.
+    public static RunJournal resume(Path dir, String runId, String workflow) throws IOException {
+        String id = "latest".equalsIgnoreCase(runId) ? latest(dir, workflow) : runId;
+        if (id == null || !Files.exists(dir.resolve(id + LOG))) {
+            throw new IOException("No hay un journal para reanudar: " + (id == null ? runId : id));
+        }
+        RunJournal j = new RunJournal(dir, id, workflow);
+        j.recover();
+        j.openLog(false);
+        j.resumedFrom = j.completed.size();
+        return j;
+    }
+
+    public static Path defaultDir() {
+        return Path.of(System.getProperty("user.home"), ".miniflow", "journal");
+    }
+
+    public String runId() {
+        return runId;
+    }
+
+    public int resumedNodes() {
+        return resumedFrom;
+    }
+
+    // The recorded writes of this node occurrence, if its config and inputs are unchanged.
+    public synchronized Map<String, Object> replay(String node, int occurrence, Map<String, Object> config,
+                                                   ExecutionContext context) {
+        Completed c = completed.get(key(node, occurrence));
+        if (c == null || !c.config().equals(ContentDigest.of(config))) return null;
+        if (!ContentDigest.matches(c.reads(), context::getVariable)) return null;
+        return c.writes();
+    }
+
+    public void completed(String node, int occurrence, Map<String, Object> config, Map<String, String> reads,
+                          Map<String, Object> writes) throws IOException {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("t", "node");
+        r.put("node", node);
+        r.put("n", occurrence);
+        r.put("config", ContentDigest.of(config));
+        r.put("reads", reads);
+        r.put("writes", writes);
+        Completed c = new Completed(node, occurrence, (String) r.get("config"), reads, writes);
+
+        long end;
+        boolean snapshot;
+        synchronized (this) {
+            end = append(r);
+            completed.put(key(node, occurrence), c);
+            snapshot = ++sinceSnapshot >= snapshotEvery;
+        }
+        if (snapshot) snapshot();
+        else sync(end);
+    }
+
+    public void failed(String node, int occurrence, String error) throws IOException {
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("t", "fail");
+        r.put("node", node);
+        r.put("n", occurrence);
+        r.put("error", error);
+        long end;
+        synchronized (this) {
+            end = append(r);
+        }
+        sync(end);
+    }
+
+    // A run that finished cleanly has nothing left to resume; its files go away.
+    public void finish(boolean success) throws IOException {
+        close();
+        if (success) {
+            Files.deleteIfExists(dir.resolve(runId + LOG));
+            Files.deleteIfExists(dir.resolve(runId + SNAPSHOT));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+        channel.force(false);
+        channel.close();
+        channel = null;
+    }
+
+    // Whoever gets the lock first forces everything appended so far; callers queued behind it find
+    // their record already durable and return without a second fsync.
+    private void sync(long end) throws IOException {
+        if (!sync) return;
+        synchronized (syncLock) {
+            if (synced >= end) return;
+            long target = appended;
+            FileChannel ch;
+            synchronized (this) {
+                ch = channel;
+            }
+            if (ch == null) return;
+            ch.force(false);
+            synced = target;
+        }
+    }
+
+    private long append(Map<String, Object> record) throws IOException {
+        byte[] json = MAPPER.writeValueAsBytes(record);
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        ByteBuffer buf = ByteBuffer.allocate(8 + json.length);
+        buf.putInt(json.length).putInt((int) crc.getValue()).put(json).flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        appended = channel.position();
+        return appended;
+    }
+
+    // Snapshot first (atomically, then fsynced), then restart the log. A crash in between leaves
+    // both, and replaying the old log over the snapshot is harmless: it re-adds the same records.
+    private void snapshot() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                writeSnapshot();
+            }
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("runId", runId);
+        doc.put("workflow", workflow);
+        doc.put("completed", new ArrayList<>(completed.values()));
+
+        Path tmp = Files.createTempFile(dir, runId, ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.wrap(MAPPER.writeValueAsBytes(doc));
+            while (buf.hasRemaining()) out.write(buf);
+            out.force(true);
+        }
+        Files.move(tmp, dir.resolve(runId + SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel.close();
+        openLog(true);
+        sinceSnapshot = 0;
+    }
+
+    private void openLog(boolean fresh) throws IOException {
+        Path log = dir.resolve(runId + LOG);
+        channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        if (fresh) {
+            channel.truncate(0);
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("t", "run");
+            header.put("runId", runId);
+            header.put("workflow", workflow);
+            append(header);
+            channel.force(true);
+        } else {
+            channel.position(channel.size());
+        }
+        appended = channel.position();
+        synced = appended;
+    }
+
+    private void recover() throws IOException {
+        Path snap = dir.resolve(runId + SNAPSHOT);
+        if (Files.exists(snap)) {
+            Map<?, ?> doc = MAPPER.readValue(snap.toFile(), Map.class);
+            if (doc.get("completed") instanceof List<?> list) {
+                for (Object o : list) {
+                    Completed c = MAPPER.convertValue(o, Completed.class);
+                    completed.put(key(c.node(), c.occurrence()), c);
+                }
+            }
+        }
+
+        Path log = dir.resolve(runId + LOG);
+        try (FileChannel in = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long valid = 0;
+            ByteBuffer head = ByteBuffer.allocate(8);
+            while (true) {
+                head.clear();
+                if (in.read(head, valid) < 8) break;
+                head.flip();
+                int len = head.getInt();
+                int crc = head.getInt();
+                if (len < 0 || len > MAX_RECORD || valid + 8 + len > in.size()) break;
+                ByteBuffer body = ByteBuffer.allocate(len);
+                in.read(body, valid + 8);
+                CRC32 check = new CRC32();
+                check.update(body.array());
+                if ((int) check.getValue() != crc) break;
+                apply(MAPPER.readValue(body.array(), Map.class));
+                valid += 8 + len;
+            }
+            if (valid < in.size()) in.truncate(valid);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(Map<?, ?> record) {
+        if (!"node".equals(record.get("t"))) return;
+        Completed c = new Completed(String.valueOf(record.get("node")),
+                record.get("n") instanceof Number n ? n.intValue() : 0,
+                String.valueOf(record.get("config")),
+                record.get("reads") instanceof Map<?, ?> r ? (Map<String, String>) r : Map.of(),
+                record.get("writes") instanceof Map<?, ?> w ? (Map<String, Object>) w : Map.of());
+        completed.put(key(c.node(), c.occurrence()), c);
+    }
+
+    private static String latest(Path dir, String workflow) throws IOException {
+        if (!Files.isDirectory(dir)) return null;
+        List<Path> logs;
+        try (Stream<Path> s = Files.list(dir)) {
+            logs = new ArrayList<>(s.filter(p -> p.getFileName().toString().endsWith(LOG)).toList());
+        }
+        logs.sort(Comparator.comparingLong(RunJournal::lastModified).reversed());
+        for (Path p : logs) {
+            String id = p.getFileName().toString();
+            id = id.substring(0, id.length() - LOG.length());
+            if (workflow == null || workflow.equals(headerWorkflow(p))) return id;
+        }
+        return null;
+    }
+
+    private static String headerWorkflow(Path log) {
+        try (FileChannel in = FileChannel.open(log, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(8);
+            if (in.read(head, 0) < 8) return null;
+            head.flip();
+            int len = head.getInt();
+            if (len < 0 || len > 64 * 1024) return null;
+            ByteBuffer body = ByteBuffer.allocate(len);
+            in.read(body, 8);
+            Object w = MAPPER.readValue(body.array(), Map.class).get("workflow");
+            return w == null ? null : String.valueOf(w);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String key(String node, int occurrence) {
+        return node + "#" + occurrence;
+    }
+}
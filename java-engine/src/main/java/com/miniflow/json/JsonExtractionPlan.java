@@ -0,0 +1,262 @@
+package com.miniflow.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.context.LargeValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// All paths of a node's output mapping, compiled into one trie and resolved in a single streaming
+// pass: subtrees nobody asked for are skipped without being built, and only mapped values are
+// materialized. Parsing stops as soon as every requested path has been seen. Each JSONPath is split
+// into its streamable prefix (names and indices), which goes into the trie, and the remainder
+// (wildcards, slices, filters, descent), which runs on the materialized subtree.
+public final class JsonExtractionPlan {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_CACHED = 1024;
+    private static final Map<Map<?, ?>, JsonExtractionPlan> CACHE = new ConcurrentHashMap<>();
+    private static final Pattern INTEGER = Pattern.compile("^-?\\d+$");
+    private static final Pattern DECIMAL = Pattern.compile("^-?\\d+\\.\\d+$");
+
+    private enum Kind { BODY, STATUS, DATA, PAYLOAD, PATH, NONE }
+
+    private static final class Target {
+        final String key;
+        final Kind kind;
+        final int primary;
+        final int fallback;
+        final JsonPath rest;
+
+        Target(String key, Kind kind, int primary, int fallback) {
+            this(key, kind, primary, fallback, null);
+        }
+
+        Target(String key, Kind kind, int primary, int fallback, JsonPath rest) {
+            this.key = key;
+            this.kind = kind;
+            this.primary = primary;
+            this.fallback = fallback;
+            this.rest = rest;
+        }
+    }
+
+    private static final class Trie {
+        // String keys for member names, Integer keys for array indices.
+        final Map<Object, Trie> children = new HashMap<>(4);
+        int slot = -1;
+    }
+
+    private final List<Target> targets;
+    private final Trie root = new Trie();
+    private int slots;
+    private final boolean needsBody;
+
+    private JsonExtractionPlan(Map<?, ?> mapping) {
+        List<Target> t = new ArrayList<>(mapping.size());
+        boolean body = false;
+        for (Map.Entry<?, ?> e : mapping.entrySet()) {
+            if (e.getKey() == null || e.getValue() == null) continue;
+            String key = String.valueOf(e.getKey());
+            String path = String.valueOf(e.getValue());
+
+            if (path.isBlank()) t.add(new Target(key, Kind.NONE, -1, -1));
+            else if ("$.body".equals(path)) {
+                t.add(new Target(key, Kind.BODY, -1, -1));
+                body = true;
+            } else if ("$.status".equals(path)) t.add(new Target(key, Kind.STATUS, slot(List.of("status")), -1));
+            else if ("$.data".equals(path)) t.add(new Target(key, Kind.DATA, slot(List.of("data")), slot(List.of("payload"))));
+            else if ("$.payload".equals(path)) t.add(new Target(key, Kind.PAYLOAD, slot(List.of("payload")), slot(List.of("data"))));
+            else if (path.startsWith("$")) t.add(pathTarget(key, compilePath(path)));
+            else t.add(new Target(key, Kind.NONE, -1, -1));
+        }
+        this.targets = t;
+        this.needsBody = body;
+    }
+
+    public static JsonExtractionPlan compile(Map<?, ?> mapping) {
+        JsonExtractionPlan plan = CACHE.get(mapping);
+        if (plan != null) return plan;
+
+        plan = new JsonExtractionPlan(mapping);
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        CACHE.put(mapping, plan);
+        return plan;
+    }
+
+    public boolean needsBody() {
+        return needsBody;
+    }
+
+    public boolean needsParse() {
+        return slots > 0;
+    }
+
+    public Map<String, Object> evaluate(byte[] json, int httpStatus, Object rawBody) {
+        Object[] found = new Object[slots];
+        if (needsParse() && json != null && json.length > 0) {
+            try (JsonParser p = MAPPER.createParser(json)) {
+                found = scan(p);
+            } catch (IOException | RuntimeException e) {
+                found = new Object[slots];
+            }
+        }
+        return resolve(found, httpStatus, rawBody);
+    }
+
+    public Map<String, Object> evaluate(InputStream json, int httpStatus) {
+        Object[] found = new Object[slots];
+        if (needsParse() && json != null) {
+            try (JsonParser p = MAPPER.createParser(json)) {
+                found = scan(p);
+            } catch (IOException | RuntimeException e) {
+                found = new Object[slots];
+            }
+        }
+        return resolve(found, httpStatus, null);
+    }
+
+    // A spilled body is parsed from its file; $.body mappings get the LargeValue itself.
+    public Map<String, Object> evaluate(LargeValue body, int httpStatus) {
+        Object[] found = new Object[slots];
+        if (needsParse()) {
+            try (InputStream in = body.stream(); JsonParser p = MAPPER.createParser(in)) {
+                found = scan(p);
+            } catch (IOException | RuntimeException e) {
+                found = new Object[slots];
+            }
+        }
+        return resolve(found, httpStatus, body);
+    }
+
+    private static JsonPath compilePath(String path) {
+        try {
+            return JsonPath.compile(path);
+        } catch (IllegalArgumentException e) {
+            if (!path.startsWith("$.")) throw e;
+            return JsonPath.dotted(path);
+        }
+    }
+
+    private Target pathTarget(String key, JsonPath path) {
+        int prefix = path.streamablePrefixLength();
+        List<Object> steps = new ArrayList<>(prefix);
+        for (JsonPath.Segment s : path.segments().subList(0, prefix)) {
+            steps.add(s instanceof JsonPath.Child c ? c.name() : (Object) ((JsonPath.Index) s).index());
+        }
+        JsonPath rest = prefix == path.segments().size() ? null : path.suffix(prefix);
+        return new Target(key, Kind.PATH, slot(steps), -1, rest);
+    }
+
+    private int slot(List<?> steps) {
+        Trie node = root;
+        for (Object step : steps) {
+            node = node.children.computeIfAbsent(step, k -> new Trie());
+        }
+        if (node.slot < 0) node.slot = slots++;
+        return node.slot;
+    }
+
+    private Object[] scan(JsonParser p) throws IOException {
+        Object[] found = new Object[slots];
+        JsonToken first = p.nextToken();
+        if (first == null) return found;
+        int[] remaining = {slots};
+        if (root.slot >= 0) fill(root, p.readValueAs(Object.class), found, remaining);
+        else walk(p, first, root, found, remaining);
+        return found;
+    }
+
+    // Returns false once every slot has been resolved so the caller can stop reading.
+    private boolean walk(JsonParser p, JsonToken token, Trie node, Object[] found, int[] remaining) throws IOException {
+        if (token == JsonToken.START_OBJECT) {
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                Trie child = node.children.get(p.currentName());
+                if (!visit(p, p.nextToken(), child, found, remaining)) return false;
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            JsonToken value;
+            while ((value = p.nextToken()) != JsonToken.END_ARRAY && value != null) {
+                Trie child = node.children.get(index++);
+                if (!visit(p, value, child, found, remaining)) return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean visit(JsonParser p, JsonToken value, Trie child, Object[] found, int[] remaining) throws IOException {
+        if (child == null) {
+            p.skipChildren();
+            return true;
+        }
+
+        if (child.slot >= 0) {
+            fill(child, p.readValueAs(Object.class), found, remaining);
+        } else if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+            if (!walk(p, value, child, found, remaining)) return false;
+        } else {
+            p.skipChildren();
+        }
+        return remaining[0] > 0;
+    }
+
+    private void fill(Trie node, Object value, Object[] found, int[] remaining) {
+        if (node.slot >= 0 && found[node.slot] == null) {
+            found[node.slot] = value;
+            remaining[0]--;
+        }
+        for (Map.Entry<Object, Trie> e : node.children.entrySet()) {
+            Object child = null;
+            if (e.getKey() instanceof String name && value instanceof Map<?, ?> m) child = m.get(name);
+            else if (e.getKey() instanceof Integer i && value instanceof List<?> l && i < l.size()) child = l.get(i);
+            if (child != null) fill(e.getValue(), child, found, remaining);
+        }
+    }
+
+    private Map<String, Object> resolve(Object[] found, int httpStatus, Object rawBody) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Target t : targets) {
+            Object v = switch (t.kind) {
+                case BODY -> rawBody;
+                case STATUS -> found[t.primary] != null ? normalizeValue(found[t.primary]) : httpStatus;
+                case DATA, PAYLOAD -> normalizeValue(found[t.primary] != null ? found[t.primary] : found[t.fallback]);
+                case PATH -> t.rest == null ? normalizeValue(found[t.primary]) : t.rest.evaluate(found[t.primary]);
+                case NONE -> null;
+            };
+            out.put(t.key, v);
+        }
+        return out;
+    }
+
+    private static Object normalizeValue(Object value) {
+        if (value == null) return null;
+
+        if (value instanceof String s) {
+            String t = s.trim();
+            if (INTEGER.matcher(t).matches()) {
+                try {
+                    return Integer.parseInt(t);
+                } catch (Exception ignored) {
+                }
+            }
+            if (DECIMAL.matcher(t).matches()) {
+                try {
+                    return Double.parseDouble(t);
+                } catch (Exception ignored) {
+                }
+            }
+            return s;
+        }
+
+        return value;
+    }
+}
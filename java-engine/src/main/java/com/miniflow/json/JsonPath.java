@@ -0,0 +1,175 @@
+package com.miniflow.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiled JSONPath over Jackson's default tree (Map/List/scalars). Supports $.name, $['name'],
+// [n] (negative from the end), [start:end:step], [*], unions [0,2] / ['a','b'], recursive descent
+// (..name, ..*, ..[0]) and filters [?(@.price < 10 && @.tags)]. Definite paths (names and
+// indices only) return one value or null; every other path returns the list of matches.
+public final class JsonPath {
+    private static final int MAX_CACHED = 4096;
+    private static final Map<String, JsonPath> CACHE = new ConcurrentHashMap<>();
+
+    interface Segment {
+        void select(Object node, List<Object> out);
+    }
+
+    record Child(String name) implements Segment {
+        public void select(Object node, List<Object> out) {
+            if (node instanceof Map<?, ?> m && m.containsKey(name)) out.add(m.get(name));
+        }
+    }
+
+    record Index(int index) implements Segment {
+        public void select(Object node, List<Object> out) {
+            if (!(node instanceof List<?> l)) return;
+            int i = index < 0 ? l.size() + index : index;
+            if (i >= 0 && i < l.size()) out.add(l.get(i));
+        }
+    }
+
+    record Slice(Integer start, Integer end, int step) implements Segment {
+        public void select(Object node, List<Object> out) {
+            if (!(node instanceof List<?> l) || step == 0) return;
+            int n = l.size();
+            if (step > 0) {
+                int from = clamp(start == null ? 0 : start, n);
+                int to = clamp(end == null ? n : end, n);
+                for (int i = from; i < to; i += step) out.add(l.get(i));
+            } else {
+                int from = start == null ? n - 1 : Math.min(clamp(start, n), n - 1);
+                int to = end == null ? -1 : clamp(end, n);
+                for (int i = from; i > to; i += step) out.add(l.get(i));
+            }
+        }
+
+        private static int clamp(int i, int n) {
+            if (i < 0) i += n;
+            return Math.max(0, Math.min(n, i));
+        }
+    }
+
+    record Wildcard() implements Segment {
+        public void select(Object node, List<Object> out) {
+            if (node instanceof Map<?, ?> m) out.addAll(m.values());
+            else if (node instanceof List<?> l) out.addAll(l);
+        }
+    }
+
+    record Union(List<Segment> parts) implements Segment {
+        public void select(Object node, List<Object> out) {
+            for (Segment s : parts) s.select(node, out);
+        }
+    }
+
+    record Descendant(Segment inner) implements Segment {
+        public void select(Object node, List<Object> out) {
+            inner.select(node, out);
+            if (node instanceof Map<?, ?> m) {
+                for (Object v : m.values()) select(v, out);
+            } else if (node instanceof List<?> l) {
+                for (Object v : l) select(v, out);
+            }
+        }
+    }
+
+    record Filter(JsonPathFilter predicate) implements Segment {
+        public void select(Object node, List<Object> out) {
+            if (node instanceof List<?> l) {
+                for (Object v : l) if (predicate.test(v)) out.add(v);
+            } else if (node instanceof Map<?, ?> m) {
+                for (Object v : m.values()) if (predicate.test(v)) out.add(v);
+            }
+        }
+    }
+
+    private final String source;
+    private final List<Segment> segments;
+    private final boolean definite;
+
+    private JsonPath(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = segments;
+        this.definite = segments.stream().allMatch(s -> s instanceof Child || s instanceof Index);
+    }
+
+    public static JsonPath compile(String path) {
+        JsonPath cached = CACHE.get(path);
+        if (cached != null) return cached;
+
+        JsonPath compiled = new JsonPath(path, Collections.unmodifiableList(new JsonPathParser(path).parsePath()));
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        CACHE.put(path, compiled);
+        return compiled;
+    }
+
+    // The pre-JSONPath reading of "$.a.b": member names split on '.', nothing else. Used for mappings
+    // the parser rejects, so they keep resolving the way they used to.
+    public static JsonPath dotted(String path) {
+        List<Segment> segments = new ArrayList<>();
+        if (path.startsWith("$.")) for (String name : path.substring(2).split("\\.")) segments.add(new Child(name));
+        return new JsonPath(path, Collections.unmodifiableList(segments));
+    }
+
+    static JsonPath relative(String source, List<Segment> segments) {
+        return new JsonPath(source, segments);
+    }
+
+    public boolean isDefinite() {
+        return definite;
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    // Leading run of name / non-negative index steps: the part a streaming reader can follow without
+    // materializing anything.
+    public int streamablePrefixLength() {
+        int n = 0;
+        for (Segment s : segments) {
+            if (s instanceof Child || (s instanceof Index i && i.index() >= 0)) n++;
+            else break;
+        }
+        return n;
+    }
+
+    public JsonPath suffix(int from) {
+        return new JsonPath(source, segments.subList(from, segments.size()));
+    }
+
+    public Object evaluate(Object root) {
+        if (definite) {
+            Object cur = root;
+            for (Segment s : segments) {
+                if (cur == null) return null;
+                if (s instanceof Child c) {
+                    cur = cur instanceof Map<?, ?> m ? m.get(c.name()) : null;
+                } else {
+                    List<Object> one = new ArrayList<>(1);
+                    s.select(cur, one);
+                    cur = one.isEmpty() ? null : one.get(0);
+                }
+            }
+            return cur;
+        }
+
+        List<Object> current = new ArrayList<>(1);
+        if (root != null) current.add(root);
+        for (Segment s : segments) {
+            List<Object> next = new ArrayList<>();
+            for (Object node : current) s.select(node, next);
+            current = next;
+        }
+        return current;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,87 @@
+package com.miniflow.json;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Predicate of a [?( ... )] filter, evaluated against each candidate element (@).
+interface JsonPathFilter {
+    boolean test(Object current);
+
+    interface Operand {
+        Object value(Object current);
+    }
+
+    record Literal(Object value) implements Operand {
+        public Object value(Object current) {
+            return value;
+        }
+    }
+
+    record Current(JsonPath path) implements Operand {
+        public Object value(Object current) {
+            return path.evaluate(current);
+        }
+    }
+
+    record Exists(Operand operand) implements JsonPathFilter {
+        public boolean test(Object current) {
+            Object v = operand.value(current);
+            if (v instanceof List<?> l) return !l.isEmpty();
+            return v != null && !Boolean.FALSE.equals(v);
+        }
+    }
+
+    record Not(JsonPathFilter inner) implements JsonPathFilter {
+        public boolean test(Object current) {
+            return !inner.test(current);
+        }
+    }
+
+    record And(JsonPathFilter left, JsonPathFilter right) implements JsonPathFilter {
+        public boolean test(Object current) {
+            return left.test(current) && right.test(current);
+        }
+    }
+
+    record Or(JsonPathFilter left, JsonPathFilter right) implements JsonPathFilter {
+        public boolean test(Object current) {
+            return left.test(current) || right.test(current);
+        }
+    }
+
+    record Compare(Operand left, String op, Operand right) implements JsonPathFilter {
+        public boolean test(Object current) {
+            Object a = left.value(current);
+            Object b = right.value(current);
+
+            if (a instanceof Number x && b instanceof Number y) {
+                int c = Double.compare(x.doubleValue(), y.doubleValue());
+                return matches(c);
+            }
+            if (op.equals("==")) return equalsLoose(a, b);
+            if (op.equals("!=")) return !equalsLoose(a, b);
+            if (a instanceof String x && b instanceof String y) return matches(x.compareTo(y));
+            return false;
+        }
+
+        private boolean matches(int c) {
+            return switch (op) {
+                case "==" -> c == 0;
+                case "!=" -> c != 0;
+                case "<" -> c < 0;
+                case "<=" -> c <= 0;
+                case ">" -> c > 0;
+                case ">=" -> c >= 0;
+                default -> false;
+            };
+        }
+
+        private static boolean equalsLoose(Object a, Object b) {
+            if (a instanceof Map<?, ?> || b instanceof Map<?, ?>) return Objects.equals(a, b);
+            if (a == null || b == null) return a == b;
+            if (a instanceof Number || b instanceof Number) return String.valueOf(a).equals(String.valueOf(b));
+            return Objects.equals(a, b);
+        }
+    }
+}
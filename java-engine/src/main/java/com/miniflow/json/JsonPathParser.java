@@ -0,0 +1,245 @@
+package com.miniflow.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class JsonPathParser {
+    private final String src;
+    private int pos;
+
+    JsonPathParser(String src) {
+        this.src = src == null ? "" : src.trim();
+    }
+
+    List<JsonPath.Segment> parsePath() {
+        if (!src.startsWith("$")) throw error("JSONPath must start with $");
+        pos = 1;
+        List<JsonPath.Segment> segments = segments(false);
+        if (pos < src.length()) throw error("Unexpected character '" + src.charAt(pos) + "'");
+        return segments;
+    }
+
+    // Relative paths (@.a.b) stop at the first character that cannot continue a path.
+    private List<JsonPath.Segment> segments(boolean relative) {
+        List<JsonPath.Segment> out = new ArrayList<>();
+        while (pos < src.length()) {
+            char c = src.charAt(pos);
+            if (src.startsWith("..", pos)) {
+                if (relative) throw error("Recursive descent is not supported inside filters");
+                pos += 2;
+                out.add(new JsonPath.Descendant(peek() == '[' ? bracket() : dotted(false)));
+            } else if (c == '.') {
+                pos++;
+                out.add(dotted(relative));
+            } else if (c == '[') {
+                out.add(bracket());
+            } else {
+                break;
+            }
+        }
+        return out;
+    }
+
+    // Outside filters a member name runs to the next '.' or '[', so names with spaces or operator
+    // characters (data.full name) resolve as they always did; inside a filter it stops at operators.
+    private JsonPath.Segment dotted(boolean relative) {
+        if (peek() == '*') {
+            pos++;
+            return new JsonPath.Wildcard();
+        }
+        int start = pos;
+        while (pos < src.length() && (relative ? isNameChar(src.charAt(pos)) : isMemberChar(src.charAt(pos)))) pos++;
+        if (start == pos) throw error("Expected a member name");
+        return new JsonPath.Child(src.substring(start, pos));
+    }
+
+    private JsonPath.Segment bracket() {
+        expect('[');
+        skipSpaces();
+        JsonPath.Segment segment;
+        if (peek() == '*') {
+            pos++;
+            segment = new JsonPath.Wildcard();
+        } else if (peek() == '?') {
+            pos++;
+            skipSpaces();
+            expect('(');
+            JsonPathFilter filter = or();
+            skipSpaces();
+            expect(')');
+            segment = new JsonPath.Filter(filter);
+        } else if (peek() == '\'' || peek() == '"') {
+            List<JsonPath.Segment> names = new ArrayList<>();
+            do {
+                skipSpaces();
+                names.add(new JsonPath.Child(quoted()));
+                skipSpaces();
+            } while (consume(','));
+            segment = names.size() == 1 ? names.get(0) : new JsonPath.Union(names);
+        } else {
+            segment = indexOrSlice();
+        }
+        skipSpaces();
+        expect(']');
+        return segment;
+    }
+
+    private JsonPath.Segment indexOrSlice() {
+        Integer first = optionalInt();
+        skipSpaces();
+        if (peek() == ':') {
+            pos++;
+            Integer end = optionalInt();
+            int step = 1;
+            skipSpaces();
+            if (consume(':')) {
+                Integer s = optionalInt();
+                step = s == null ? 1 : s;
+            }
+            return new JsonPath.Slice(first, end, step);
+        }
+        if (first == null) throw error("Expected an index");
+
+        List<JsonPath.Segment> indices = new ArrayList<>();
+        indices.add(new JsonPath.Index(first));
+        while (consume(',')) {
+            Integer next = optionalInt();
+            if (next == null) throw error("Expected an index");
+            indices.add(new JsonPath.Index(next));
+        }
+        return indices.size() == 1 ? indices.get(0) : new JsonPath.Union(indices);
+    }
+
+    private JsonPathFilter or() {
+        JsonPathFilter left = and();
+        while (consumeToken("||")) left = new JsonPathFilter.Or(left, and());
+        return left;
+    }
+
+    private JsonPathFilter and() {
+        JsonPathFilter left = unary();
+        while (consumeToken("&&")) left = new JsonPathFilter.And(left, unary());
+        return left;
+    }
+
+    private JsonPathFilter unary() {
+        skipSpaces();
+        if (peek() == '!' && !src.startsWith("!=", pos)) {
+            pos++;
+            return new JsonPathFilter.Not(unary());
+        }
+        if (peek() == '(') {
+            pos++;
+            JsonPathFilter inner = or();
+            skipSpaces();
+            expect(')');
+            return inner;
+        }
+
+        JsonPathFilter.Operand left = operand();
+        skipSpaces();
+        for (String op : new String[] {"==", "!=", "<=", ">=", "<", ">"}) {
+            if (src.startsWith(op, pos)) {
+                pos += op.length();
+                return new JsonPathFilter.Compare(left, op, operand());
+            }
+        }
+        return new JsonPathFilter.Exists(left);
+    }
+
+    private JsonPathFilter.Operand operand() {
+        skipSpaces();
+        char c = peek();
+        if (c == '@') {
+            int start = pos++;
+            List<JsonPath.Segment> rel = segments(true);
+            return new JsonPathFilter.Current(JsonPath.relative(src.substring(start, pos), rel));
+        }
+        if (c == '\'' || c == '"') return new JsonPathFilter.Literal(quoted());
+        if (c == '-' || Character.isDigit(c)) return new JsonPathFilter.Literal(number());
+        for (String word : new String[] {"true", "false", "null"}) {
+            if (src.startsWith(word, pos)) {
+                pos += word.length();
+                return new JsonPathFilter.Literal(word.equals("null") ? null : Boolean.valueOf(word));
+            }
+        }
+        throw error("Expected a filter operand");
+    }
+
+    private Number number() {
+        int start = pos;
+        if (peek() == '-') pos++;
+        while (pos < src.length() && (Character.isDigit(src.charAt(pos)) || src.charAt(pos) == '.')) pos++;
+        String text = src.substring(start, pos);
+        try {
+            return text.contains(".") ? (Number) Double.valueOf(text) : (Number) Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + text);
+        }
+    }
+
+    private Integer optionalInt() {
+        skipSpaces();
+        int start = pos;
+        if (peek() == '-') pos++;
+        while (pos < src.length() && Character.isDigit(src.charAt(pos))) pos++;
+        if (start == pos) return null;
+        try {
+            return Integer.valueOf(src.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Invalid index " + src.substring(start, pos));
+        }
+    }
+
+    private String quoted() {
+        char quote = src.charAt(pos++);
+        StringBuilder sb = new StringBuilder();
+        while (pos < src.length() && src.charAt(pos) != quote) {
+            char c = src.charAt(pos++);
+            if (c == '\\' && pos < src.length()) c = src.charAt(pos++);
+            sb.append(c);
+        }
+        expect(quote);
+        return sb.toString();
+    }
+
+    private boolean consumeToken(String token) {
+        skipSpaces();
+        if (!src.startsWith(token, pos)) return false;
+        pos += token.length();
+        return true;
+    }
+
+    private boolean consume(char c) {
+        skipSpaces();
+        if (peek() != c) return false;
+        pos++;
+        return true;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private char peek() {
+        return pos < src.length() ? src.charAt(pos) : '\0';
+    }
+
+    private void skipSpaces() {
+        while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+    }
+
+    private static boolean isMemberChar(char c) {
+        return c != '.' && c != '[';
+    }
+
+    private static boolean isNameChar(char c) {
+        return c != '.' && c != '[' && c != ']' && c != '(' && c != ')' && c != ' '
+                && c != '=' && c != '!' && c != '<' && c != '>' && c != '&' && c != '|' && c != ',';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in JSONPath: " + src);
+    }
+}
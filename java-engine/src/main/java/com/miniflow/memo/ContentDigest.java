@@ -0,0 +1,70 @@
+package com.miniflow.memo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.miniflow.context.LargeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// SHA-256 over canonical JSON (sorted keys), so equal context values hash equally however their maps
+// were built. Shared by the memo store and the run journal, which compare read sets the same way.
+public final class ContentDigest {
+    public static final String ABSENT = "-";
+
+    static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .build();
+
+    private ContentDigest() {
+    }
+
+    // ABSENT for null, null when the value does not serialize to JSON. Spilled values hash their
+    // bytes from the file rather than being materialized.
+    public static String of(Object value) {
+        if (value == null) return ABSENT;
+        if (value instanceof LargeValue large) return "large:" + large.digest();
+        try {
+            return of(CANONICAL.writeValueAsString(value));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    public static String of(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Digests of every value in a read set, or null if one of them cannot be hashed.
+    public static Map<String, String> ofAll(Map<String, Object> values) {
+        Map<String, String> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            String d = of(e.getValue());
+            if (d == null) return null;
+            out.put(e.getKey(), d);
+        }
+        return out;
+    }
+
+    // True when every key still hashes to the recorded digest in the given lookup.
+    public static boolean matches(Map<String, String> digests, Function<String, Object> current) {
+        for (Map.Entry<String, String> r : digests.entrySet()) {
+            if (!r.getValue().equals(of(current.apply(r.getKey())))) return false;
+        }
+        return true;
+    }
+}
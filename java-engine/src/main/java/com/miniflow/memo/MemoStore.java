@@ -0,0 +1,209 @@
+package com.miniflow.memo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.context.AccessLog;
+import com.miniflow.context.ExecutionContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Results of earlier node executions, addressed by a signature (node type + config) and verified by
+// the node's read set: a trace replays only if every context key the node read still has the same
+// digest. Templates read the context through the same tracked path, so the rendered config is
+// covered without rendering it here. Traces live as one JSON file each under dir/<signature>/.
+public final class MemoStore {
+    private static final String VERSION = "1";
+    private static final Set<String> DEFAULT_TYPES = Set.of("HTTP_REQUEST", "COMMAND");
+    private static volatile MemoStore shared;
+
+    // reads maps each context key the node read to the digest of the value it saw.
+    public record Hit(Map<String, String> reads, Map<String, Object> writes) {
+    }
+
+    private record Trace(Path file, Map<String, String> reads, Map<String, Object> writes) {
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    private final int maxTracesPerNode;
+    private final ObjectMapper mapper = ContentDigest.CANONICAL;
+    private final Map<String, List<Trace>> traces = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong(-1);
+
+    public MemoStore(Path dir, long maxBytes, int maxTracesPerNode) {
+        this.dir = dir;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxTracesPerNode = Math.max(1, maxTracesPerNode);
+    }
+
+    public static MemoStore open(Path dir) {
+        return new MemoStore(dir, Long.getLong("miniflow.memo.maxBytes", 256L * 1024 * 1024),
+                Integer.getInteger("miniflow.memo.tracesPerNode", 8));
+    }
+
+    public static MemoStore shared() {
+        MemoStore s = shared;
+        if (s == null) {
+            synchronized (MemoStore.class) {
+                if (shared == null) {
+                    String configured = System.getProperty("miniflow.memo.dir");
+                    shared = open(configured != null && !configured.isBlank()
+                            ? Path.of(configured)
+                            : Path.of(System.getProperty("user.home"), ".miniflow", "memo"));
+                }
+                s = shared;
+            }
+        }
+        return s;
+    }
+
+    // HTTP and COMMAND nodes by default; "memo": true or false in a node's config overrides that.
+    public boolean appliesTo(String type, Map<String, Object> config) {
+        Object flag = config.get("memo");
+        if (flag != null) return "true".equalsIgnoreCase(String.valueOf(flag));
+        return DEFAULT_TYPES.contains(type);
+    }
+
+    public String signature(String type, Map<String, Object> config) {
+        try {
+            return ContentDigest.of(VERSION + "\n" + type + "\n" + mapper.writeValueAsString(config));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    // The most recent trace whose read set matches the context, or null when nothing matches.
+    public Hit lookup(String signature, ExecutionContext context) {
+        if (signature == null) return null;
+        for (Trace t : tracesFor(signature)) {
+            if (ContentDigest.matches(t.reads(), context::getVariable)) {
+                touch(t.file());
+                return new Hit(t.reads(), t.writes());
+            }
+        }
+        return null;
+    }
+
+    public void store(String signature, AccessLog log) {
+        if (signature == null) return;
+        Map<String, String> reads = ContentDigest.ofAll(log.reads());
+        if (reads == null) return;
+        Map<String, Object> writes = log.writes();
+
+        try {
+            Map<String, Object> doc = new LinkedHashMap<>();
+            doc.put("reads", reads);
+            doc.put("writes", writes);
+            byte[] json = mapper.writeValueAsBytes(doc);
+
+            Path nodeDir = dir.resolve(signature);
+            Files.createDirectories(nodeDir);
+            Path file = nodeDir.resolve(ContentDigest.of(mapper.writeValueAsString(reads)) + ".json");
+            Path tmp = Files.createTempFile(nodeDir, "trace", ".tmp");
+            Files.write(tmp, json);
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            List<Trace> list = tracesFor(signature);
+            list.removeIf(t -> t.file().equals(file));
+            list.add(0, new Trace(file, reads, mapper.readValue(json, Doc.class).writes));
+            while (list.size() > maxTracesPerNode) {
+                Trace oldest = list.remove(list.size() - 1);
+                Files.deleteIfExists(oldest.file());
+            }
+
+            if (bytes.get() < 0) bytes.compareAndSet(-1, scan());
+            else bytes.addAndGet(json.length - previous);
+            if (bytes.get() > maxBytes) trim();
+        } catch (JsonProcessingException e) {
+            // Values that do not round-trip through JSON are simply not memoized.
+        } catch (IOException e) {
+            System.err.println("MEMO_ERROR: " + e.getMessage());
+        }
+    }
+
+    private static final class Doc {
+        public Map<String, String> reads;
+        public Map<String, Object> writes;
+    }
+
+    private List<Trace> tracesFor(String signature) {
+        return traces.computeIfAbsent(signature, this::load);
+    }
+
+    // Most recently used first, so the trace a user is iterating on is checked before older ones.
+    private List<Trace> load(String signature) {
+        List<Trace> out = new CopyOnWriteArrayList<>();
+        Path nodeDir = dir.resolve(signature);
+        if (!Files.isDirectory(nodeDir)) return out;
+        try (Stream<Path> files = Files.list(nodeDir)) {
+            List<Path> sorted = new ArrayList<>(files.filter(p -> p.toString().endsWith(".json")).toList());
+            sorted.sort(Comparator.comparingLong(MemoStore::lastModified).reversed());
+            for (Path p : sorted) {
+                try {
+                    Doc doc = mapper.readValue(p.toFile(), Doc.class);
+                    if (doc.reads != null && doc.writes != null) out.add(new Trace(p, doc.reads, doc.writes));
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return out;
+    }
+
+    private long scan() throws IOException {
+        long total = 0;
+        for (Path p : files()) total += Files.size(p);
+        return total;
+    }
+
+    // Least recently used traces go first until the store is back under 90% of its budget.
+    private synchronized void trim() throws IOException {
+        List<Path> all = files();
+        all.sort(Comparator.comparingLong(MemoStore::lastModified));
+        long total = scan();
+        for (Path p : all) {
+            if (total <= maxBytes * 9 / 10) break;
+            long size = Files.size(p);
+            if (Files.deleteIfExists(p)) total -= size;
+        }
+        traces.clear();
+        bytes.set(total);
+    }
+
+    private List<Path> files() throws IOException {
+        if (!Files.isDirectory(dir)) return new ArrayList<>();
+        try (Stream<Path> s = Files.walk(dir, 2)) {
+            return new ArrayList<>(s.filter(p -> p.toString().endsWith(".json")).toList());
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.miniflow.metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Process-wide registry of timers, counters and gauges. A series is a metric name plus label pairs; once a
+// name has maxSeries label combinations, further ones are folded into a single "overflow" series so
+// arbitrary workflows in a long-running daemon cannot grow the registry without bound.
+public final class Metrics {
+    private static final Metrics SHARED = new Metrics(Integer.getInteger("miniflow.metrics.maxSeries", 2000));
+    private static final double[] BUCKETS_SECONDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60
+    };
+    private static final String[] OVERFLOW = {"series", "overflow"};
+
+    private record Key(String name, List<String> labels) {
+    }
+
+    private final Map<Key, Histogram> timers = new ConcurrentHashMap<>();
+    private final Map<Key, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<Key, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> seriesPerName = new ConcurrentHashMap<>();
+    private final int maxSeries;
+
+    public Metrics(int maxSeries) {
+        this.maxSeries = Math.max(1, maxSeries);
+    }
+
+    public static Metrics shared() {
+        return SHARED;
+    }
+
+    public Histogram timer(String name, String... labels) {
+        return series(timers, name, labels, k -> new Histogram());
+    }
+
+    public LongAdder counter(String name, String... labels) {
+        return series(counters, name, labels, k -> new LongAdder());
+    }
+
+    // Sampled on every snapshot/scrape; registering the same series again replaces the supplier.
+    public void gauge(String name, LongSupplier value, String... labels) {
+        gauges.put(new Key(name, Arrays.asList(labels)), value);
+    }
+
+    public void recordNanos(String name, long nanos, String... labels) {
+        timer(name, labels).record(nanos);
+    }
+
+    public void increment(String name, String... labels) {
+        counter(name, labels).increment();
+    }
+
+    public void add(String name, long delta, String... labels) {
+        if (delta != 0) counter(name, labels).add(delta);
+    }
+
+    // Folds another registry into this one, e.g. per-batch registries into the shared one.
+    public void merge(Metrics other) {
+        other.timers.forEach((k, h) -> series(timers, k.name, k.labels.toArray(String[]::new), x -> new Histogram()).merge(h));
+        other.counters.forEach((k, c) -> series(counters, k.name, k.labels.toArray(String[]::new), x -> new LongAdder()).add(c.sum()));
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        Map<String, List<Object>> t = new TreeMap<>();
+        timers.forEach((k, h) -> {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("labels", labelMap(k.labels));
+            s.put("count", h.count());
+            s.put("sumMs", h.sum() / 1e6);
+            s.put("meanMs", h.count() == 0 ? 0 : h.sum() / 1e6 / h.count());
+            s.put("p50Ms", h.percentile(50) / 1e6);
+            s.put("p90Ms", h.percentile(90) / 1e6);
+            s.put("p99Ms", h.percentile(99) / 1e6);
+            s.put("maxMs", h.max() / 1e6);
+            t.computeIfAbsent(k.name, x -> new ArrayList<>()).add(s);
+        });
+        Map<String, List<Object>> c = new TreeMap<>();
+        counters.forEach((k, v) -> {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("labels", labelMap(k.labels));
+            s.put("value", v.sum());
+            c.computeIfAbsent(k.name, x -> new ArrayList<>()).add(s);
+        });
+        Map<String, List<Object>> g = new TreeMap<>();
+        gauges.forEach((k, v) -> {
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("labels", labelMap(k.labels));
+            s.put("value", v.getAsLong());
+            g.computeIfAbsent(k.name, x -> new ArrayList<>()).add(s);
+        });
+        out.put("timers", t);
+        out.put("counters", c);
+        out.put("gauges", g);
+        return out;
+    }
+
+    // Prometheus text exposition format 0.0.4. Timers are exported as histograms in seconds.
+    public String prometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        Map<String, List<Map.Entry<Key, Histogram>>> byTimer = new TreeMap<>();
+        timers.entrySet().forEach(e -> byTimer.computeIfAbsent(e.getKey().name, x -> new ArrayList<>()).add(e));
+        byTimer.forEach((name, series) -> {
+            sb.append("# TYPE ").append(name).append(" histogram\n");
+            for (Map.Entry<Key, Histogram> e : series) {
+                Histogram h = e.getValue();
+                List<String> labels = e.getKey().labels;
+                for (double le : BUCKETS_SECONDS) {
+                    sample(sb, name + "_bucket", labels, "le", format(le)).append(h.countAtOrBelow((long) (le * 1e9))).append('\n');
+                }
+                long count = h.count();
+                sample(sb, name + "_bucket", labels, "le", "+Inf").append(count).append('\n');
+                sample(sb, name + "_sum", labels, null, null).append(format(h.sum() / 1e9)).append('\n');
+                sample(sb, name + "_count", labels, null, null).append(count).append('\n');
+            }
+        });
+        Map<String, List<Map.Entry<Key, LongAdder>>> byCounter = new TreeMap<>();
+        counters.entrySet().forEach(e -> byCounter.computeIfAbsent(e.getKey().name, x -> new ArrayList<>()).add(e));
+        byCounter.forEach((name, series) -> {
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            for (Map.Entry<Key, LongAdder> e : series) {
+                sample(sb, name, e.getKey().labels, null, null).append(e.getValue().sum()).append('\n');
+            }
+        });
+        Map<String, List<Map.Entry<Key, LongSupplier>>> byGauge = new TreeMap<>();
+        gauges.entrySet().forEach(e -> byGauge.computeIfAbsent(e.getKey().name, x -> new ArrayList<>()).add(e));
+        byGauge.forEach((name, series) -> {
+            sb.append("# TYPE ").append(name).append(" gauge\n");
+            for (Map.Entry<Key, LongSupplier> e : series) {
+                sample(sb, name, e.getKey().labels, null, null).append(e.getValue().getAsLong()).append('\n');
+            }
+        });
+        return sb.toString();
+    }
+
+    private <T> T series(Map<Key, T> map, String name, String[] labels, Function<Key, T> create) {
+        Key key = new Key(name, Arrays.asList(labels));
+        T existing = map.get(key);
+        if (existing != null) return existing;
+
+        LongAdder n = seriesPerName.computeIfAbsent(name, x -> new LongAdder());
+        if (n.sum() >= maxSeries) key = new Key(name, Arrays.asList(OVERFLOW));
+        return map.computeIfAbsent(key, k -> {
+            n.increment();
+            return create.apply(k);
+        });
+    }
+
+    private static Map<String, String> labelMap(List<String> labels) {
+        Map<String, String> m = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < labels.size(); i += 2) m.put(labels.get(i), labels.get(i + 1));
+        return m;
+    }
+
+    private static StringBuilder sample(StringBuilder sb, String name, List<String> labels, String extraKey, String extraValue) {
+        sb.append(name);
+        if (!labels.isEmpty() || extraKey != null) {
+            sb.append('{');
+            boolean first = true;
+            for (int i = 0; i + 1 < labels.size(); i += 2) {
+                if (!first) sb.append(',');
+                label(sb, labels.get(i), labels.get(i + 1));
+                first = false;
+            }
+            if (extraKey != null) {
+                if (!first) sb.append(',');
+                label(sb, extraKey, extraValue);
+            }
+            sb.append('}');
+        }
+        return sb.append(' ');
+    }
+
+    private static void label(StringBuilder sb, String key, String value) {
+        sb.append(key).append("=\"");
+        String v = value == null ? "" : value;
+        for (int i = 0; i < v.length(); i++) {
+            char ch = v.charAt(i);
+            if (ch == '\\' || ch == '"') sb.append('\\').append(ch);
+            else if (ch == '\n') sb.append("\\n");
+            else sb.append(ch);
+        }
+        sb.append('"');
+    }
+
+    private static String format(double v) {
+        if (v == Math.rint(v) && !Double.isInfinite(v)) return String.valueOf((long) v);
+        return BigDecimal.valueOf(v).toPlainString();
+    }
+}
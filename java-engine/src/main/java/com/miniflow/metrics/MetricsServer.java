@@ -0,0 +1,62 @@
+package com.miniflow.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+// Loopback-only HTTP endpoint for the daemon: /metrics in Prometheus text format and
+// /metrics.json as a JSON snapshot.
+public final class MetricsServer implements AutoCloseable {
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+
+    public static MetricsServer start(int port, Metrics metrics, ObjectMapper mapper) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/metrics.json")) {
+                respond(exchange, "application/json", mapper.writeValueAsBytes(metrics.snapshot()));
+            } else if (exchange.getRequestURI().getPath().equals("/metrics")) {
+                respond(exchange, "text/plain; version=0.0.4; charset=utf-8",
+                        metrics.prometheus().getBytes(StandardCharsets.UTF_8));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "miniflow-metrics");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+        System.err.println("Metricas en http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+        return new MetricsServer(server);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.miniflow.model;
 import java.util.List;
+import java.util.Map;
 
 public class Workflow {
     public String name;
     public List<Node> nodes;
     public List<Connection> edges;
+    public List<Map<String, Object>> triggers;
 }
\ No newline at end of file
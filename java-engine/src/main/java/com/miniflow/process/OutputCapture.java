@@ -0,0 +1,138 @@
+package com.miniflow.process;
+
+import com.miniflow.context.SpillBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+// One output stream of a child process: keeps the last maxBytes in a ring buffer, optionally copies
+// everything to a spill file, and hands complete lines to a listener as they arrive. When maxBytes
+// is above the spill threshold the output goes to a SpillBuffer instead of a ring of that size.
+public final class OutputCapture {
+    private static final int MAX_LINE = 8192;
+
+    private final int maxBytes;
+    private final byte[] ring;
+    private final SpillBuffer large;
+    private final Path spillFile;
+    private final Consumer<String> lines;
+    private final byte[] line;
+    private OutputStream spill;
+    private int lineLength;
+    private int head;
+    private long total;
+    private Object value;
+
+    public OutputCapture(int maxBytes, Path spillFile, Consumer<String> lines) throws IOException {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.large = this.maxBytes > SpillBuffer.threshold() ? new SpillBuffer(StandardCharsets.UTF_8) : null;
+        this.ring = new byte[large != null ? 0 : this.maxBytes];
+        this.spillFile = spillFile;
+        this.lines = lines;
+        this.line = lines == null ? null : new byte[MAX_LINE];
+        if (spillFile != null) {
+            Path dir = spillFile.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            this.spill = Files.newOutputStream(spillFile);
+        }
+    }
+
+    synchronized void write(byte[] buf, int off, int len) throws IOException {
+        if (spill != null) spill.write(buf, off, len);
+        if (lines != null) splitLines(buf, off, len);
+        total += len;
+
+        if (large != null) {
+            large.write(buf, off, len);
+            return;
+        }
+        if (ring.length == 0) return;
+        if (len >= ring.length) {
+            System.arraycopy(buf, off + len - ring.length, ring, 0, ring.length);
+            head = 0;
+            return;
+        }
+        int first = Math.min(len, ring.length - head);
+        System.arraycopy(buf, off, ring, head, first);
+        System.arraycopy(buf, off + first, ring, 0, len - first);
+        head = (head + len) % ring.length;
+    }
+
+    synchronized void finish() throws IOException {
+        if (lines != null && lineLength > 0) emitLine();
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+    }
+
+    // The kept output: a String, or a LargeValue when it went past the spill threshold.
+    public synchronized Object value() throws IOException {
+        if (large == null) return text();
+        if (value == null) value = large.finishTail(maxBytes);
+        return value;
+    }
+
+    public synchronized String text() {
+        if (large != null) {
+            try {
+                return String.valueOf(value());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int size = (int) Math.min(total, ring.length);
+        byte[] out = new byte[size];
+        if (total <= ring.length) {
+            System.arraycopy(ring, 0, out, 0, size);
+            return new String(out, StandardCharsets.UTF_8);
+        }
+        System.arraycopy(ring, head, out, 0, ring.length - head);
+        System.arraycopy(ring, 0, out, ring.length - head, head);
+
+        // The cut may land inside a multi-byte character.
+        int start = 0;
+        while (start < out.length && (out[start] & 0xC0) == 0x80) start++;
+        return new String(out, start, out.length - start, StandardCharsets.UTF_8);
+    }
+
+    public synchronized long totalBytes() {
+        return total;
+    }
+
+    public synchronized boolean truncated() {
+        return total > maxBytes;
+    }
+
+    public Path spillFile() {
+        return spillFile;
+    }
+
+    private void splitLines(byte[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            byte b = buf[i];
+            if (b == '\n') {
+                emitLine();
+            } else {
+                if (lineLength == line.length) emitLine();
+                line[lineLength++] = b;
+            }
+        }
+    }
+
+    private void emitLine() {
+        int n = lineLength;
+        if (n > 0 && line[n - 1] == '\r') n--;
+        lineLength = 0;
+        try {
+            lines.accept(new String(line, 0, n, StandardCharsets.UTF_8));
+        } catch (RuntimeException ignored) {
+            // A failing listener must not stop the drain, or the child blocks on a full pipe.
+        }
+    }
+}
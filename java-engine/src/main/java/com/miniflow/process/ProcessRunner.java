@@ -0,0 +1,96 @@
+package com.miniflow.process;
+
+import com.miniflow.core.EngineExecutors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Runs a child process with stdout and stderr drained concurrently, so neither pipe can fill up and
+// stall the child, and an optional timeout that kills the whole process tree.
+public final class ProcessRunner {
+    private static final long DRAIN_GRACE_MS = 2000;
+
+    // spawnNanos is the time ProcessBuilder.start took; runNanos runs from there until both pipes drained.
+    public record Result(int exitCode, boolean timedOut, OutputCapture stdout, OutputCapture stderr,
+                         long spawnNanos, long runNanos) {
+    }
+
+    private ProcessRunner() {
+    }
+
+    public static Result run(List<String> command, long timeoutMs, OutputCapture stdout, OutputCapture stderr)
+            throws IOException, InterruptedException {
+        Process process;
+        long t0 = System.nanoTime();
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(false).start();
+        } catch (IOException e) {
+            stdout.finish();
+            stderr.finish();
+            throw e;
+        }
+        long started = System.nanoTime();
+        process.getOutputStream().close();
+
+        Future<?> out = EngineExecutors.nodePool().submit(() -> drain(process.getInputStream(), stdout));
+        Future<?> err = EngineExecutors.nodePool().submit(() -> drain(process.getErrorStream(), stderr));
+
+        boolean timedOut = false;
+        try {
+            if (timeoutMs > 0) {
+                if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    timedOut = true;
+                    killTree(process);
+                }
+            } else {
+                process.waitFor();
+            }
+        } catch (InterruptedException e) {
+            killTree(process);
+            throw e;
+        } finally {
+            // Grandchildren that escaped the kill can keep the pipes open; stop waiting on them.
+            awaitDrain(out, process.getInputStream());
+            awaitDrain(err, process.getErrorStream());
+        }
+
+        int exit = process.waitFor();
+        return new Result(exit, timedOut, stdout, stderr, started - t0, System.nanoTime() - started);
+    }
+
+    static Void drain(InputStream in, OutputCapture capture) throws IOException {
+        byte[] buf = new byte[8192];
+        try (in) {
+            int n;
+            while ((n = in.read(buf)) > 0) capture.write(buf, 0, n);
+        } finally {
+            capture.finish();
+        }
+        return null;
+    }
+
+    private static void awaitDrain(Future<?> drain, InputStream in) throws IOException {
+        try {
+            drain.get(DRAIN_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            in.close();
+            drain.cancel(true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io && !"Stream closed".equals(io.getMessage())) throw io;
+        }
+    }
+
+    // Descendants are listed before the parent dies; afterwards they are re-parented and unreachable.
+    static void killTree(Process process) {
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroyForcibly();
+        for (ProcessHandle h : descendants) h.destroyForcibly();
+    }
+}
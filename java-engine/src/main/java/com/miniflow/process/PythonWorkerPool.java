@@ -0,0 +1,209 @@
+package com.miniflow.process;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.core.EngineExecutors;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Long-lived Python interpreters running a small harness (python_worker.py). Jobs are sent as one JSON
+// line on stdin and answered with one JSON line, so imports stay warm between runs. A worker is
+// retired after maxJobs jobs, after a job that failed, and killed on timeout or protocol errors.
+public final class PythonWorkerPool {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String HARNESS = "python_worker.py";
+    private static final PythonWorkerPool SHARED = new PythonWorkerPool(
+            intProperty("miniflow.python.workers", Math.max(2, Runtime.getRuntime().availableProcessors())),
+            intProperty("miniflow.python.maxJobs", 200));
+
+    public record Result(int exitCode, boolean timedOut, String stdout, String stderr, boolean truncated, Object result) {
+    }
+
+    private final int maxWorkers;
+    private final int maxJobs;
+    private final Map<List<String>, Pool> pools = new ConcurrentHashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong retired = new AtomicLong();
+    private final AtomicLong jobs = new AtomicLong();
+    private volatile Path harness;
+
+    public PythonWorkerPool(int maxWorkers, int maxJobs) {
+        this.maxWorkers = Math.max(1, maxWorkers);
+        this.maxJobs = Math.max(1, maxJobs);
+    }
+
+    public static PythonWorkerPool shared() {
+        return SHARED;
+    }
+
+    // `interpreter` is the full command before the script (python3 -u, python -X utf8); each distinct
+    // one gets its own workers.
+    public Result run(List<String> interpreter, String script, List<String> argv, long timeoutMs, int maxOutput)
+            throws IOException, InterruptedException {
+        Pool pool = pools.computeIfAbsent(List.copyOf(interpreter), k -> new Pool(maxWorkers));
+        pool.permits.acquire();
+        Worker worker = null;
+        boolean reusable = false;
+        try {
+            worker = pool.idle.pollFirst();
+            if (worker == null || !worker.process.isAlive()) {
+                if (worker != null) worker.kill();
+                worker = start(interpreter);
+            }
+
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("id", ++worker.jobs);
+            request.put("script", script);
+            request.put("argv", argv);
+            request.put("cwd", System.getProperty("user.dir"));
+            request.put("maxOutput", maxOutput);
+            jobs.incrementAndGet();
+
+            Map<?, ?> response = worker.call(MAPPER.writeValueAsString(request), timeoutMs);
+            if (response == null) return new Result(-1, true, "", "", false, null);
+
+            int exit = response.get("exitCode") instanceof Number n ? n.intValue() : 1;
+            reusable = exit == 0 && worker.jobs < maxJobs;
+            return new Result(exit, false,
+                    asString(response.get("stdout")), asString(response.get("stderr")),
+                    Boolean.TRUE.equals(response.get("truncated")), response.get("result"));
+        } finally {
+            if (worker != null) {
+                if (reusable) {
+                    pool.idle.offerFirst(worker);
+                } else {
+                    worker.kill();
+                    retired.incrementAndGet();
+                }
+            }
+            pool.permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("started", started.get());
+        out.put("retired", retired.get());
+        out.put("jobs", jobs.get());
+        Map<String, Object> idle = new LinkedHashMap<>();
+        pools.forEach((k, p) -> idle.put(String.join(" ", k), p.idle.size()));
+        out.put("idle", idle);
+        return out;
+    }
+
+    private Worker start(List<String> interpreter) throws IOException {
+        List<String> command = new ArrayList<>(interpreter);
+        command.add(harnessPath().toString());
+        Process process = new ProcessBuilder(command).start();
+        started.incrementAndGet();
+        OutputCapture stderr = new OutputCapture(4096, null, null);
+        EngineExecutors.nodePool().submit(() -> ProcessRunner.drain(process.getErrorStream(), stderr));
+        return new Worker(process, stderr);
+    }
+
+    private Path harnessPath() throws IOException {
+        Path h = harness;
+        if (h != null) return h;
+        synchronized (this) {
+            if (harness == null) {
+                Path tmp = Files.createTempFile("miniflow-worker-", ".py");
+                tmp.toFile().deleteOnExit();
+                try (InputStream in = PythonWorkerPool.class.getResourceAsStream(HARNESS)) {
+                    if (in == null) throw new IOException("Missing resource " + HARNESS);
+                    Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                harness = tmp;
+            }
+            return harness;
+        }
+    }
+
+    private static String asString(Object v) {
+        return v == null ? "" : String.valueOf(v);
+    }
+
+    private static int intProperty(String name, int fallback) {
+        String v = System.getProperty(name);
+        if (v == null) return fallback;
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static final class Pool {
+        final Semaphore permits;
+        final ConcurrentLinkedDeque<Worker> idle = new ConcurrentLinkedDeque<>();
+
+        Pool(int maxWorkers) {
+            this.permits = new Semaphore(maxWorkers, true);
+        }
+    }
+
+    private static final class Worker {
+        final Process process;
+        final OutputCapture stderr;
+        final BufferedWriter in;
+        final BufferedReader out;
+        int jobs;
+
+        Worker(Process process, OutputCapture stderr) {
+            this.process = process;
+            this.stderr = stderr;
+            this.in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            this.out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        // Null on timeout; the caller retires the worker.
+        Map<?, ?> call(String request, long timeoutMs) throws IOException, InterruptedException {
+            in.write(request);
+            in.write('\n');
+            in.flush();
+
+            String line;
+            if (timeoutMs > 0) {
+                Future<String> read = EngineExecutors.nodePool().submit(out::readLine);
+                try {
+                    line = read.get(timeoutMs, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    kill();
+                    return null;
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } else {
+                line = out.readLine();
+            }
+
+            if (line == null) {
+                throw new IOException("El worker de Python terminó inesperadamente: " + stderr.text().trim());
+            }
+            return MAPPER.readValue(line, Map.class);
+        }
+
+        void kill() {
+            ProcessRunner.killTree(process);
+        }
+    }
+}
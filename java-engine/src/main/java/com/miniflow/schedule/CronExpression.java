@@ -0,0 +1,130 @@
+package com.miniflow.schedule;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Standard five-field cron: minute hour day-of-month month day-of-week. Fields take *, lists,
+// ranges and steps (*/5, 1-10/2), month and weekday names, and 0 or 7 for Sunday. When both day
+// fields are restricted a day matches either of them, as in classic cron.
+public final class CronExpression {
+    private static final Map<String, String> MACROS = Map.of(
+        "@yearly", "0 0 1 1 *",
+        "@annually", "0 0 1 1 *",
+        "@monthly", "0 0 1 * *",
+        "@weekly", "0 0 * * 0",
+        "@daily", "0 0 * * *",
+        "@midnight", "0 0 * * *",
+        "@hourly", "0 * * * *");
+    private static final List<String> MONTHS = List.of("JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC");
+    private static final List<String> DAYS = List.of("SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT");
+    private static final int MAX_YEARS = 5;
+
+    private final String source;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String source, String[] f) {
+        this.source = source;
+        this.minutes = field(f[0], 0, 59, null, 0);
+        this.hours = field(f[1], 0, 23, null, 0);
+        this.daysOfMonth = field(f[2], 1, 31, null, 0);
+        this.months = field(f[3], 1, 12, MONTHS, 1);
+        this.daysOfWeek = field(f[4], 0, 7, DAYS, 0);
+        if (daysOfWeek.get(7)) daysOfWeek.set(0);
+        this.anyDayOfMonth = isAny(f[2]);
+        this.anyDayOfWeek = isAny(f[4]);
+    }
+
+    public static CronExpression parse(String source) {
+        if (source == null || source.isBlank()) throw new IllegalArgumentException("Empty cron expression");
+        String s = source.trim();
+        String expanded = MACROS.getOrDefault(s.toLowerCase(Locale.ROOT), s);
+        String[] fields = expanded.split("\\s+");
+        if (fields.length != 5) throw new IllegalArgumentException("Cron needs 5 fields: " + source);
+        return new CronExpression(s, fields);
+    }
+
+    // First matching minute strictly after the given time.
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime t = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = after.plusYears(MAX_YEARS);
+        while (t.isBefore(limit)) {
+            if (!months.get(t.getMonthValue())) {
+                t = t.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(t)) {
+                t = t.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(t.getHour())) {
+                t = t.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(t.getMinute())) {
+                t = t.plusMinutes(1);
+            } else {
+                return t;
+            }
+        }
+        throw new IllegalArgumentException("Cron never fires: " + source);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private boolean dayMatches(ZonedDateTime t) {
+        boolean dom = daysOfMonth.get(t.getDayOfMonth());
+        boolean dow = daysOfWeek.get(t.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth) return dow;
+        if (anyDayOfWeek) return dom;
+        return dom || dow;
+    }
+
+    private static boolean isAny(String field) {
+        return field.equals("*") || field.equals("?");
+    }
+
+    private static BitSet field(String spec, int min, int max, List<String> names, int nameBase) {
+        BitSet bits = new BitSet(max + 1);
+        for (String part : spec.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = Integer.parseInt(part.substring(slash + 1));
+                part = part.substring(0, slash);
+                if (step <= 0) throw new IllegalArgumentException("Invalid cron step: " + spec);
+            }
+            int from;
+            int to;
+            if (part.equals("*") || part.equals("?")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                from = value(dash >= 0 ? part.substring(0, dash) : part, names, nameBase);
+                to = dash >= 0 ? value(part.substring(dash + 1), names, nameBase) : (slash >= 0 ? max : from);
+            }
+            if (from < min || to > max || from > to) throw new IllegalArgumentException("Cron field out of range: " + spec);
+            for (int v = from; v <= to; v += step) bits.set(v);
+        }
+        return bits;
+    }
+
+    private static int value(String token, List<String> names, int nameBase) {
+        if (names != null) {
+            int i = names.indexOf(token.toUpperCase(Locale.ROOT));
+            if (i >= 0) return i + nameBase;
+        }
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron value: " + token);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.miniflow.schedule;
+
+import com.miniflow.core.EngineExecutors;
+import com.miniflow.core.RunResult;
+import com.miniflow.core.WorkflowPlan;
+import com.miniflow.core.WorkflowRunner;
+import com.miniflow.events.EventSink;
+import com.miniflow.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Fires workflows from triggers inside the resident engine. One timer thread only decides and hands
+// runs to a bounded worker pool, so a long run never delays other jobs' ticks; when the pool and its
+// queue are full the tick is dropped and counted rather than piling up. Plans are compiled once when
+// a job is scheduled and reused by every tick.
+public final class Scheduler implements AutoCloseable {
+    private static volatile Scheduler shared;
+
+    private static final class Job {
+        final String id;
+        final WorkflowPlan plan;
+        final Trigger trigger;
+        final EventSink events;
+        final Object owner;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicLong runs = new AtomicLong();
+        final AtomicLong skipped = new AtomicLong();
+        final AtomicLong misfired = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        volatile ScheduledFuture<?> pending;
+        volatile long nextFireMs;
+        volatile String lastStatus;
+        volatile long lastStartMs;
+        volatile boolean cancelled;
+
+        Job(String id, WorkflowPlan plan, Trigger trigger, EventSink events, Object owner) {
+            this.id = id;
+            this.plan = plan;
+            this.trigger = trigger;
+            this.events = events;
+            this.owner = owner;
+        }
+    }
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadPoolExecutor workers;
+
+    public Scheduler(int maxWorkers, int queueCapacity) {
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> daemon(r, "miniflow-scheduler"));
+        this.timer.setRemoveOnCancelPolicy(true);
+        int n = Math.max(1, maxWorkers);
+        this.workers = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), r -> daemon(r, "miniflow-scheduled-run"));
+        this.workers.allowCoreThreadTimeOut(true);
+    }
+
+    // -Dminiflow.schedule.workers (4) caps concurrent scheduled runs; -Dminiflow.schedule.queue (64)
+    // bounds the ticks waiting for a worker.
+    public static Scheduler shared() {
+        Scheduler s = shared;
+        if (s == null) {
+            synchronized (Scheduler.class) {
+                if (shared == null) {
+                    Scheduler created = new Scheduler(Integer.getInteger("miniflow.schedule.workers", 4),
+                        Integer.getInteger("miniflow.schedule.queue", 64));
+                    Metrics m = Metrics.shared();
+                    m.gauge("miniflow_schedule_queue_depth", () -> created.workers.getQueue().size());
+                    m.gauge("miniflow_schedule_active_runs", () -> created.workers.getActiveCount());
+                    m.gauge("miniflow_schedule_jobs", () -> created.jobs.size());
+                    shared = created;
+                }
+                s = shared;
+            }
+        }
+        return s;
+    }
+
+    // Registers a workflow's triggers. Jobs are named by the trigger's "id", or by the workflow name
+    // (plus "#n" when it has several triggers). All triggers are parsed before any is armed.
+    public List<String> scheduleAll(WorkflowPlan plan, List<Map<String, Object>> triggers,
+                                    Function<String, EventSink> events, Object owner) {
+        if (triggers == null || triggers.isEmpty()) {
+            throw new IllegalArgumentException("El workflow \"" + plan.getName() + "\" no define triggers");
+        }
+        List<Trigger> parsed = new ArrayList<>(triggers.size());
+        for (Map<String, Object> t : triggers) parsed.add(Trigger.fromConfig(t));
+
+        List<String> ids = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            Object named = triggers.get(i).get("id");
+            String id = named != null ? String.valueOf(named) : triggers.size() == 1 ? plan.getName() : plan.getName() + "#" + (i + 1);
+            schedule(id, plan, parsed.get(i), events.apply(id), owner);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // Scheduling an id that already exists replaces the old job.
+    public void schedule(String id, WorkflowPlan plan, Trigger trigger, EventSink events, Object owner) {
+        Job job = new Job(id, plan, trigger, events, owner);
+        Job previous = jobs.put(id, job);
+        if (previous != null) stop(previous);
+        arm(job, trigger.first(System.currentTimeMillis()));
+    }
+
+    public boolean cancel(String id) {
+        Job job = jobs.remove(id);
+        if (job == null) return false;
+        stop(job);
+        return true;
+    }
+
+    // Jobs registered by a connection go away with it.
+    public void cancelOwnedBy(Object owner) {
+        for (Job job : new ArrayList<>(jobs.values())) {
+            if (job.owner == owner && jobs.remove(job.id, job)) stop(job);
+        }
+    }
+
+    public List<Map<String, Object>> jobs() {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            Map<String, Object> j = new LinkedHashMap<>();
+            j.put("job", job.id);
+            j.put("workflow", job.plan.getName());
+            j.put("trigger", job.trigger.describe());
+            j.put("nextFireMs", job.nextFireMs);
+            j.put("running", job.active.get());
+            j.put("runs", job.runs.get());
+            j.put("skipped", job.skipped.get());
+            j.put("misfired", job.misfired.get());
+            j.put("rejected", job.rejected.get());
+            if (job.lastStatus != null) {
+                j.put("lastStatus", job.lastStatus);
+                j.put("lastStartMs", job.lastStartMs);
+            }
+            out.add(j);
+        }
+        return out;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("jobs", jobs.size());
+        s.put("activeRuns", workers.getActiveCount());
+        s.put("queueDepth", workers.getQueue().size());
+        s.put("completedRuns", workers.getCompletedTaskCount());
+        return s;
+    }
+
+    @Override
+    public void close() {
+        for (Job job : jobs.values()) job.cancelled = true;
+        jobs.clear();
+        timer.shutdownNow();
+        workers.shutdown();
+    }
+
+    private void arm(Job job, long atMs) {
+        if (job.cancelled) return;
+        job.nextFireMs = atMs;
+        try {
+            job.pending = timer.schedule(() -> fire(job, atMs),
+                Math.max(0, atMs - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    private void fire(Job job, long scheduledMs) {
+        if (job.cancelled) return;
+        long now = System.currentTimeMillis();
+        Trigger t = job.trigger;
+        boolean late = now - scheduledMs > t.misfireThresholdMs();
+        if (late) {
+            job.misfired.incrementAndGet();
+            Metrics.shared().increment("miniflow_schedule_ticks_total", "job", job.id, "result", "misfired");
+        }
+        boolean delay = t.kind() == Trigger.Kind.FIXED_DELAY;
+        if (!delay) arm(job, t.next(scheduledMs, now));
+
+        if (late && !t.runMisfired()) {
+            if (delay) arm(job, t.next(scheduledMs, now));
+            return;
+        }
+        if (t.skipOverlap() && job.active.get() > 0) {
+            job.skipped.incrementAndGet();
+            Metrics.shared().increment("miniflow_schedule_ticks_total", "job", job.id, "result", "skipped");
+            return;
+        }
+
+        job.active.incrementAndGet();
+        try {
+            workers.execute(() -> execute(job, scheduledMs));
+        } catch (RejectedExecutionException e) {
+            job.active.decrementAndGet();
+            job.rejected.incrementAndGet();
+            Metrics.shared().increment("miniflow_schedule_ticks_total", "job", job.id, "result", "rejected");
+            if (delay) arm(job, t.next(scheduledMs, System.currentTimeMillis()));
+        }
+    }
+
+    private void execute(Job job, long scheduledMs) {
+        long start = System.currentTimeMillis();
+        job.lastStartMs = start;
+        Metrics.shared().recordNanos("miniflow_schedule_lag_seconds",
+            Math.max(0, start - scheduledMs) * 1_000_000, "job", job.id);
+        try {
+            RunResult result = new WorkflowRunner(job.events, EngineExecutors.defaultParallelism()).run(job.plan);
+            job.lastStatus = result.getStatus();
+        } catch (RuntimeException e) {
+            job.lastStatus = "ERROR";
+            System.err.println("SCHEDULE_ERROR: " + job.id + ": " + e.getMessage());
+        } finally {
+            job.runs.incrementAndGet();
+            job.active.decrementAndGet();
+            Metrics.shared().increment("miniflow_schedule_ticks_total", "job", job.id, "result", "ran");
+            if (job.trigger.kind() == Trigger.Kind.FIXED_DELAY) {
+                arm(job, job.trigger.next(scheduledMs, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    private static void stop(Job job) {
+        job.cancelled = true;
+        ScheduledFuture<?> pending = job.pending;
+        if (pending != null) pending.cancel(false);
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
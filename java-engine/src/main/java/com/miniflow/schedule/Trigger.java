@@ -0,0 +1,93 @@
+package com.miniflow.schedule;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Map;
+
+// When a scheduled workflow fires. CRON and FIXED_RATE ticks are planned from the previous tick, so
+// a slow run does not shift the timetable; FIXED_DELAY waits `periodMs` after each run finishes.
+// skipOverlap drops a tick while the previous run is still going. A tick that fires more than
+// misfireThresholdMs late (suspended machine, saturated pool) runs once or is skipped per `misfire`.
+public record Trigger(Kind kind, CronExpression cron, ZoneId zone, long periodMs, long initialDelayMs,
+                      boolean skipOverlap, boolean runMisfired, long misfireThresholdMs) {
+    public enum Kind { CRON, FIXED_RATE, FIXED_DELAY }
+
+    // {"cron": "*/5 * * * *", "zone": "Europe/Madrid"}, {"every": "30s"} or {"delay": 60000}, plus
+    // optional "overlap" (SKIP|ALLOW), "misfire" (RUN_ONCE|SKIP), "misfireThresholdMs", "initialDelay".
+    public static Trigger fromConfig(Map<String, Object> config) {
+        Kind kind;
+        CronExpression cron = null;
+        long period = 0;
+        if (config.get("cron") != null) {
+            kind = Kind.CRON;
+            cron = CronExpression.parse(String.valueOf(config.get("cron")));
+        } else if (config.get("every") != null || config.get("fixedRate") != null) {
+            kind = Kind.FIXED_RATE;
+            period = durationMs(config.get("every") != null ? config.get("every") : config.get("fixedRate"));
+        } else if (config.get("delay") != null || config.get("fixedDelay") != null) {
+            kind = Kind.FIXED_DELAY;
+            period = durationMs(config.get("delay") != null ? config.get("delay") : config.get("fixedDelay"));
+        } else {
+            throw new IllegalArgumentException("Trigger needs cron, every or delay: " + config);
+        }
+        if (kind != Kind.CRON && period <= 0) throw new IllegalArgumentException("Trigger period must be positive: " + config);
+
+        ZoneId zone = config.get("zone") == null ? ZoneId.systemDefault() : ZoneId.of(String.valueOf(config.get("zone")));
+        long initialDelay = config.get("initialDelay") == null ? 0 : durationMs(config.get("initialDelay"));
+        boolean skipOverlap = !"ALLOW".equalsIgnoreCase(String.valueOf(config.get("overlap")));
+        boolean runMisfired = !"SKIP".equalsIgnoreCase(String.valueOf(config.get("misfire")));
+        long threshold = config.get("misfireThresholdMs") == null ? 1000 : durationMs(config.get("misfireThresholdMs"));
+        return new Trigger(kind, cron, zone, period, initialDelay, skipOverlap, runMisfired, threshold);
+    }
+
+    public long first(long nowMs) {
+        if (kind == Kind.CRON) return cronAfter(nowMs + initialDelayMs);
+        return nowMs + initialDelayMs;
+    }
+
+    // The tick after `scheduledMs` that is still in the future; ticks missed in between are dropped.
+    public long next(long scheduledMs, long nowMs) {
+        return switch (kind) {
+            case CRON -> cronAfter(Math.max(scheduledMs, nowMs));
+            case FIXED_DELAY -> nowMs + periodMs;
+            case FIXED_RATE -> {
+                long next = scheduledMs + periodMs;
+                if (next <= nowMs) next += ((nowMs - next) / periodMs + 1) * periodMs;
+                yield next;
+            }
+        };
+    }
+
+    public String describe() {
+        return switch (kind) {
+            case CRON -> "cron " + cron;
+            case FIXED_RATE -> "every " + periodMs + "ms";
+            case FIXED_DELAY -> "delay " + periodMs + "ms";
+        };
+    }
+
+    private long cronAfter(long ms) {
+        return cron.next(Instant.ofEpochMilli(ms).atZone(zone)).toInstant().toEpochMilli();
+    }
+
+    // Milliseconds as a number, or text with a unit: 500ms, 30s, 5m, 2h, 1d.
+    static long durationMs(Object value) {
+        if (value instanceof Number n) return n.longValue();
+        String s = String.valueOf(value).trim().toLowerCase(Locale.ROOT);
+        try {
+            if (s.endsWith("ms")) return Long.parseLong(s.substring(0, s.length() - 2).trim());
+            long unit = switch (s.isEmpty() ? ' ' : s.charAt(s.length() - 1)) {
+                case 's' -> 1000L;
+                case 'm' -> 60_000L;
+                case 'h' -> 3_600_000L;
+                case 'd' -> 86_400_000L;
+                default -> 0L;
+            };
+            if (unit == 0) return Long.parseLong(s);
+            return Math.round(Double.parseDouble(s.substring(0, s.length() - 1).trim()) * unit);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid duration: " + value);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.miniflow.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.core.WorkflowRunner;
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.core.EngineExecutors;
+import com.miniflow.core.PlanCache;
+import com.miniflow.core.WorkflowPlan;
+import com.miniflow.http.HttpCache;
+import com.miniflow.http.HttpClientPool;
+import com.miniflow.metrics.Metrics;
+import com.miniflow.process.PythonWorkerPool;
+import com.miniflow.journal.RunJournal;
+import com.miniflow.memo.MemoStore;
+import com.miniflow.model.Workflow;
+import com.miniflow.schedule.Scheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class EngineServer {
+    private final ObjectMapper mapper;
+    private final ExecutorService runExecutor = Executors.newFixedThreadPool(maxConcurrentRuns(), r -> {
+        Thread t = new Thread(r, "miniflow-run");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean shuttingDown;
+    private volatile ServerSocketChannel serverChannel;
+
+    public EngineServer(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        try (FrameWriter writer = new FrameWriter(mapper, out)) {
+            writer.write(null, "ready", null);
+            readFrames(in, writer);
+            Scheduler.shared().cancelOwnedBy(writer);
+            awaitRuns();
+        }
+    }
+
+    public void serveSocket(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            serverChannel = server;
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            System.err.println("Escuchando en " + socketPath);
+
+            while (!shuttingDown) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (AsynchronousCloseException e) {
+                    break;
+                }
+                Thread t = new Thread(() -> handleConnection(channel), "miniflow-conn");
+                t.setDaemon(true);
+                t.start();
+            }
+        } finally {
+            Files.deleteIfExists(socketPath);
+            awaitRuns();
+        }
+    }
+
+    private void handleConnection(SocketChannel channel) {
+        try (channel; FrameWriter writer = new FrameWriter(mapper, Channels.newOutputStream(channel))) {
+            writer.write(null, "ready", null);
+            try {
+                readFrames(Channels.newInputStream(channel), writer);
+            } finally {
+                Scheduler.shared().cancelOwnedBy(writer);
+            }
+        } catch (IOException e) {
+            System.err.println("CONNECTION_ERROR: " + e.getMessage());
+        }
+    }
+
+    private void readFrames(InputStream in, FrameWriter writer) throws IOException {
+        List<Future<?>> pending = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while (!shuttingDown && (line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            handleFrame(line, writer, pending);
+            pending.removeIf(Future::isDone);
+        }
+
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException ignored) {
+            }
+        }
+    }
+
+    private void handleFrame(String line, FrameWriter writer, List<Future<?>> pending) {
+        String id = null;
+        try {
+            JsonNode frame = mapper.readTree(line);
+            id = frame.hasNonNull("id") ? frame.get("id").asText() : null;
+            String op = frame.hasNonNull("op") ? frame.get("op").asText() : "run";
+
+            switch (op.toLowerCase()) {
+                case "run" -> pending.add(submitRun(id, frame, writer));
+                case "ping" -> writer.write(id, "pong", null);
+                case "stats" -> writer.write(id, "stats", Map.of(
+                        "http", HttpClientPool.shared().stats(),
+                        "httpCache", HttpCache.shared().stats(),
+                        "python", PythonWorkerPool.shared().stats(),
+                        "scheduler", Scheduler.shared().stats()));
+                case "metrics" -> writer.write(id, "metrics", Metrics.shared().snapshot());
+                case "schedule" -> writer.write(id, "scheduled", Map.of("jobs", schedule(frame, writer)));
+                case "unschedule" -> {
+                    if (!frame.hasNonNull("job")) throw new IllegalArgumentException("Missing job in frame");
+                    String job = frame.get("job").asText();
+                    writer.write(id, "unscheduled", Map.of("job", job, "removed", Scheduler.shared().cancel(job)));
+                }
+                case "schedules" -> writer.write(id, "schedules", Map.of("jobs", Scheduler.shared().jobs()));
+                case "shutdown" -> {
+                    shuttingDown = true;
+                    writer.write(id, "bye", null);
+                    closeServerChannel();
+                }
+                default -> writer.write(id, "error", Map.of("message", "Unknown op: " + op));
+            }
+        } catch (Exception e) {
+            writer.write(id, "error", Map.of("message", describe(e)));
+        }
+    }
+
+    // Optional frame fields: "memo": true, "journal": "<dir>" and "resume": "<runId|latest>".
+    private Future<?> submitRun(String id, JsonNode frame, FrameWriter writer) throws Exception {
+        JsonNode workflowJson = frame.get("workflow");
+        if (workflowJson == null || workflowJson.isNull()) throw new IllegalArgumentException("Missing workflow in frame");
+        Workflow workflow = mapper.treeToValue(workflowJson, Workflow.class);
+        WorkflowPlan plan = PlanCache.shared().get(workflow);
+        MemoStore memo = frame.path("memo").asBoolean(false) ? MemoStore.shared() : null;
+        String journalDir = frame.hasNonNull("journal") ? frame.get("journal").asText() : null;
+        String resume = frame.hasNonNull("resume") ? frame.get("resume").asText() : null;
+        RunJournal journal = null;
+        if (journalDir != null || resume != null) {
+            Path dir = journalDir != null ? Path.of(journalDir) : RunJournal.defaultDir();
+            journal = resume != null ? RunJournal.resume(dir, resume, plan.getName()) : RunJournal.create(dir, plan.getName());
+        }
+        RunJournal runJournal = journal;
+
+        return runExecutor.submit(() -> {
+            try {
+                new WorkflowRunner(new FrameEventSink(writer, id), EngineExecutors.defaultParallelism(), memo)
+                        .run(plan, new ExecutionContext(), runJournal);
+            } catch (Exception e) {
+                writer.write(id, "error", Map.of("message", describe(e)));
+            }
+        });
+    }
+
+    // Triggers come from the frame ("trigger" or "triggers") or from the workflow itself. Events of
+    // each scheduled run are framed with the job id, and the jobs end when this connection closes.
+    @SuppressWarnings("unchecked")
+    private List<String> schedule(JsonNode frame, FrameWriter writer) throws Exception {
+        JsonNode workflowJson = frame.get("workflow");
+        if (workflowJson == null || workflowJson.isNull()) throw new IllegalArgumentException("Missing workflow in frame");
+        Workflow workflow = mapper.treeToValue(workflowJson, Workflow.class);
+        List<Map<String, Object>> triggers = workflow.triggers;
+        if (frame.hasNonNull("trigger")) triggers = List.of(mapper.convertValue(frame.get("trigger"), Map.class));
+        else if (frame.hasNonNull("triggers")) triggers = mapper.convertValue(frame.get("triggers"), List.class);
+        return Scheduler.shared().scheduleAll(PlanCache.shared().get(workflow), triggers,
+                job -> new FrameEventSink(writer, job), writer);
+    }
+
+    private static int maxConcurrentRuns() {
+        String configured = System.getProperty("miniflow.maxConcurrentRuns");
+        if (configured != null) {
+            try {
+                return Math.max(1, Integer.parseInt(configured.trim()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    private void closeServerChannel() {
+        ServerSocketChannel server = serverChannel;
+        if (server == null) return;
+        try {
+            server.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void awaitRuns() {
+        runExecutor.shutdown();
+        try {
+            runExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String describe(Exception e) {
+        return (e.getMessage() == null || e.getMessage().isBlank()) ? e.getClass().getSimpleName() : e.getMessage();
+    }
+}
@@ -0,0 +1,63 @@
+package com.miniflow.server;
+
+import com.miniflow.events.EventSink;
+import com.miniflow.events.RunEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Maps run events onto the server protocol frames of one request id.
+public class FrameEventSink implements EventSink {
+    private final FrameWriter writer;
+    private final String id;
+
+    public FrameEventSink(FrameWriter writer, String id) {
+        this.writer = writer;
+        this.id = id;
+    }
+
+    @Override
+    public void emit(RunEvent e) {
+        Map<String, Object> f = new LinkedHashMap<>();
+        switch (e.type()) {
+            case RUN_STARTED -> {
+                f.put("workflow", e.workflow());
+                f.put("runId", e.runId());
+                writer.write(id, "started", f);
+            }
+            case WARNING -> writer.write(id, "warning", Map.of("message", e.message()));
+            case NODE_STARTED -> {
+                f.put("nodeId", e.nodeId());
+                f.put("type", e.nodeType());
+                writer.write(id, "nodeStarted", f);
+            }
+            case NODE_FINISHED, NODE_FAILED -> {
+                f.put("nodeId", e.nodeId());
+                f.put("type", e.nodeType());
+                f.put("description", e.description());
+                f.put("response", e.response());
+                if (e.error() != null) f.put("error", e.error());
+                f.put("durationMs", e.durationMs());
+                writer.write(id, "node", f);
+            }
+            case NODE_OUTPUT -> {
+                f.put("nodeId", e.nodeId());
+                f.put("stream", e.stream());
+                f.put("line", e.line());
+                writer.write(id, "output", f);
+            }
+            case RUN_FINISHED -> {
+                f.put("status", e.status());
+                f.put("durationMs", e.durationMs());
+                f.put("nodes", e.nodes());
+                f.put("failed", e.failed());
+                writer.write(id, "result", f);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        writer.flush();
+    }
+}
@@ -0,0 +1,41 @@
+package com.miniflow.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.events.BatchingWriter;
+
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// NDJSON frames, written and flushed in batches by a background thread.
+public class FrameWriter implements AutoCloseable {
+    private final BatchingWriter<Map<String, Object>> writer;
+
+    public FrameWriter(ObjectMapper mapper, OutputStream out) {
+        this.writer = new BatchingWriter<>(out, false, (frame, buf) -> {
+            buf.write(mapper.writeValueAsBytes(frame));
+            buf.write('\n');
+        }, "miniflow-frames");
+    }
+
+    public void write(Map<String, Object> frame) {
+        writer.submit(frame);
+    }
+
+    public void write(String id, String event, Map<String, Object> fields) {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("id", id);
+        frame.put("event", event);
+        if (fields != null) frame.putAll(fields);
+        write(frame);
+    }
+
+    public void flush() {
+        writer.flush();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+}
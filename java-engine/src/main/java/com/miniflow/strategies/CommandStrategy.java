@@ -1,82 +1,209 @@
 package com.miniflow.strategies;
 
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.OutputListener;
+import com.miniflow.context.SpillBuffer;
+import com.miniflow.context.Variable;
+import com.miniflow.metrics.Metrics;
 import com.miniflow.model.Node;
+import com.miniflow.process.OutputCapture;
+import com.miniflow.process.ProcessRunner;
+import com.miniflow.process.PythonWorkerPool;
+import com.miniflow.template.Escaping;
+import com.miniflow.template.Template;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 public class CommandStrategy implements NodeExecutor {
-    private static final Pattern TEMPLATE_PATTERN = Pattern.compile("\\{\\{\\s*(?:context\\.)?([a-zA-Z0-9_]+)\\s*\\}\\}");
+    private static final int DEFAULT_MAX_OUTPUT = 1024 * 1024;
+    private static final String PHASE = "miniflow_process_phase_seconds";
+    private static final Variable LAST_RESULT = Variable.of("lastResult");
+    private static final Variable LAST_STDOUT = Variable.of("lastStdout");
+    private static final Variable LAST_STDERR = Variable.of("lastStderr");
+    private static final Variable LAST_EXIT_CODE = Variable.of("lastExitCode");
+    private static final Variable LAST_OUTPUT_TRUNCATED = Variable.of("lastOutputTruncated");
+    private static final Variable LAST_STDOUT_FILE = Variable.of("lastStdoutFile");
+    private static final Variable LAST_STDERR_FILE = Variable.of("lastStderrFile");
+    private static final Variable PAYLOAD = Variable.of("payload");
+
+    // Templates are compiled once per node. With "shell": false the command runs without a shell and
+    // every template word becomes one argv entry, so values are passed through untouched.
+    private record Compiled(Template command, Template scriptPath, Template args,
+                            Variable outputKey, boolean shell, long timeoutMs, int maxOutputBytes,
+                            Path stdoutFile, Path stderrFile, boolean stream, boolean worker) {
+    }
+
+    @Override
+    public String type() {
+        return "COMMAND";
+    }
+
+    @Override
+    public Prepared prepare(Node node) {
+        Compiled c = compile(extractConfig(node));
+        return context -> run(c, node, context);
+    }
 
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
-        Map<String, Object> config = extractConfig(node);
+        run(compile(extractConfig(node)), node, context);
+    }
 
-        String command = renderTemplate(asString(config.get("command")), context);
-        String scriptPath = renderTemplate(asString(config.get("scriptPath")), context);
-        String args = renderTemplate(asString(config.get("args")), context);
-        String outputKey = asString(config.get("outputKey"));
+    private void run(Compiled c, Node node, ExecutionContext context) throws Exception {
+        if (c.command() == null || c.command().source().isBlank()) throw new Exception("Missing command in node config");
 
-        if (command == null || command.isBlank()) throw new Exception("Missing command in node config");
+        Escaping escaping = Escaping.shell();
 
-        boolean pythonCommand = isPythonCommand(command);
-        if (pythonCommand) {
-            if (scriptPath == null || scriptPath.isBlank()) {
-                throw new Exception("Para comando python, la ruta del script local es obligatoria");
-            }
-            Path script = Paths.get(unquote(scriptPath.trim()));
-            if (!Files.exists(script) || !Files.isRegularFile(script)) {
-                throw new Exception("No se encontró el script en la ruta indicada: " + scriptPath);
+        String scriptPath = c.scriptPath() == null ? null : c.scriptPath().render(context, Escaping.NONE);
+        if (c.worker()) {
+            List<String> words = c.command().renderArgv(context);
+            if (!words.isEmpty() && isPythonCommand(String.join(" ", words))) {
+                runInWorker(c, node, words, scriptPath, context);
+                return;
             }
         }
 
-        args = buildArgs(command, scriptPath, args, context);
+        List<String> cmd;
+        if (c.shell()) {
+            String command = c.command().render(context, escaping);
+            String args = c.args() == null ? null : c.args().render(context, escaping);
+            checkScript(command, scriptPath);
 
-        String full = (args == null || args.isBlank()) ? command : command + " " + args;
+            args = buildArgs(command, scriptPath, args, c.args() != null && c.args().hasSlots(), escaping, context);
+            String full = (args == null || args.isBlank()) ? command : command + " " + args;
 
-        boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-        List<String> cmd = new ArrayList<>();
-        if (isWindows) {
-            cmd.add("cmd");
-            cmd.add("/c");
-            cmd.add(full);
+            cmd = escaping == Escaping.CMD ? List.of("cmd", "/c", full) : List.of("bash", "-lc", full);
         } else {
-            cmd.add("bash");
-            cmd.add("-lc");
-            cmd.add(full);
+            cmd = new ArrayList<>(c.command().renderArgv(context));
+            if (cmd.isEmpty()) throw new Exception("Missing command in node config");
+            List<String> args = c.args() == null ? List.of() : c.args().renderArgv(context);
+            String command = String.join(" ", cmd);
+            checkScript(command, scriptPath);
+
+            if (isPythonCommand(command)) {
+                if (!containsScriptPath(String.join(" ", args), scriptPath)) cmd.add(unquote(scriptPath.trim()));
+                cmd.addAll(args);
+                appendPayload(c, cmd, context);
+            } else {
+                cmd.addAll(args);
+            }
         }
 
-        Process process = new ProcessBuilder(cmd).redirectErrorStream(false).start();
+        Consumer<String> out = null;
+        Consumer<String> err = null;
+        if (c.stream()) {
+            OutputListener listener = context.getOutputListener();
+            out = line -> listener.line(node, "stdout", line);
+            err = line -> listener.line(node, "stderr", line);
+        }
+        OutputCapture stdout = new OutputCapture(c.maxOutputBytes(), c.stdoutFile(), out);
+        OutputCapture stderr = new OutputCapture(c.maxOutputBytes(), c.stderrFile(), err);
+
+        ProcessRunner.Result result = ProcessRunner.run(cmd, c.timeoutMs(), stdout, stderr);
+        Metrics.shared().recordNanos(PHASE, result.spawnNanos(), "node", node.id, "phase", "spawn");
+        Metrics.shared().recordNanos(PHASE, result.runNanos(), "node", node.id, "phase", "run");
+        recordExit(node, result.exitCode(), result.timedOut());
+        record(c, context, stdout.value(), stderr.value(), result.exitCode(), stdout.truncated() || stderr.truncated(),
+                result.timedOut());
+    }
 
-        String stdout = readAll(process.getInputStream());
-        String stderr = readAll(process.getErrorStream());
-        int exit = process.waitFor();
+    // Script path and payload travel to a warm interpreter as JSON instead of through a shell. Words of
+    // the command before the script (interpreter flags) start the worker; words after it are script
+    // arguments.
+    private void runInWorker(Compiled c, Node node, List<String> words, String scriptPath, ExecutionContext context) throws Exception {
+        checkScript(String.join(" ", words), scriptPath);
+        String script = unquote(scriptPath.trim());
+
+        int at = 0;
+        while (at < words.size() && !isScript(words.get(at), script)) at++;
+        List<String> interpreter = words.subList(0, at);
+        List<String> argv = new ArrayList<>(words.subList(Math.min(at + 1, words.size()), words.size()));
+        argv.addAll(c.args() == null ? List.of() : c.args().renderArgv(context));
+        argv.removeIf(a -> isScript(a, script));
+        appendPayload(c, argv, context);
+
+        long t0 = System.nanoTime();
+        PythonWorkerPool.Result r = PythonWorkerPool.shared().run(interpreter, script, argv, c.timeoutMs(), c.maxOutputBytes());
+        Metrics.shared().recordNanos(PHASE, System.nanoTime() - t0, "node", node.id, "phase", "worker");
+        recordExit(node, r.exitCode(), r.timedOut());
+        if (c.stdoutFile() != null) Files.writeString(c.stdoutFile(), r.stdout());
+        if (c.stderrFile() != null) Files.writeString(c.stderrFile(), r.stderr());
+        context.set(LAST_RESULT, r.result());
+        record(c, context, SpillBuffer.of(r.stdout()), SpillBuffer.of(r.stderr()), r.exitCode(), r.truncated(), r.timedOut());
+    }
 
-        context.setVariable("lastStdout", stdout);
-        context.setVariable("lastStderr", stderr);
-        context.setVariable("lastExitCode", exit);
+    private boolean isScript(String word, String script) {
+        return containsScriptPath(word, script) && containsScriptPath(script, word);
+    }
 
-        if (outputKey != null && !outputKey.isBlank()) context.setVariable(outputKey, stdout);
+    private static void recordExit(Node node, int exit, boolean timedOut) {
+        Metrics.shared().increment("miniflow_process_exits_total", "node", node.id,
+                "code", timedOut ? "timeout" : String.valueOf(exit));
+    }
+
+    private void record(Compiled c, ExecutionContext context, Object stdout, Object stderr, int exit,
+                        boolean truncated, boolean timedOut) throws Exception {
+        context.set(LAST_STDOUT, stdout);
+        context.set(LAST_STDERR, stderr);
+        context.setInt(LAST_EXIT_CODE, exit);
+        context.set(LAST_OUTPUT_TRUNCATED, truncated);
+        if (c.stdoutFile() != null) context.set(LAST_STDOUT_FILE, c.stdoutFile().toAbsolutePath().toString());
+        if (c.stderrFile() != null) context.set(LAST_STDERR_FILE, c.stderrFile().toAbsolutePath().toString());
 
+        if (c.outputKey() != null) context.set(c.outputKey(), stdout);
+
+        if (timedOut) throw new Exception("Command timed out after " + c.timeoutMs() + " ms");
         if (exit != 0) throw new Exception("Command failed with exit code " + exit);
     }
 
-    private String buildArgs(String command, String scriptPath, String args, ExecutionContext context) {
+    private void appendPayload(Compiled c, List<String> argv, ExecutionContext context) {
+        if (c.args() != null && c.args().hasSlots()) return;
+        Object payload = context.get(PAYLOAD);
+        String text = payload == null ? null : Template.stringify(payload);
+        if (text != null && !text.isBlank()) argv.add(text);
+    }
+
+    private Compiled compile(Map<String, Object> config) {
+        String command = asString(config.get("command"));
+        String scriptPath = asString(config.get("scriptPath"));
+        String args = asString(config.get("args"));
+        return new Compiled(
+                command == null ? null : Template.compile(command),
+                scriptPath == null ? null : Template.compile(scriptPath),
+                args == null ? null : Template.compile(args),
+                outputKey(asString(config.get("outputKey"))),
+                !"false".equalsIgnoreCase(asString(config.get("shell"))),
+                asLong(config.get("timeoutMs"), 0),
+                (int) Math.min(Integer.MAX_VALUE, asLong(config.get("maxOutputBytes"), DEFAULT_MAX_OUTPUT)),
+                asPath(config.get("stdoutFile")),
+                asPath(config.get("stderrFile")),
+                "true".equalsIgnoreCase(asString(config.get("streamOutput"))),
+                "true".equalsIgnoreCase(asString(config.get("worker"))));
+    }
+
+    private void checkScript(String command, String scriptPath) throws Exception {
+        if (!isPythonCommand(command)) return;
+        if (scriptPath == null || scriptPath.isBlank()) {
+            throw new Exception("Para comando python, la ruta del script local es obligatoria");
+        }
+        Path script = Paths.get(unquote(scriptPath.trim()));
+        if (!Files.exists(script) || !Files.isRegularFile(script)) {
+            throw new Exception("No se encontró el script en la ruta indicada: " + scriptPath);
+        }
+    }
+
+    private String buildArgs(String command, String scriptPath, String args, boolean hasTemplate, Escaping escaping, ExecutionContext context) {
         String a = args == null ? "" : args.trim();
         boolean pythonCommand = isPythonCommand(command);
 
         if (pythonCommand && scriptPath != null && !scriptPath.isBlank()) {
-            String quotedPath = quote(scriptPath.trim());
+            String quotedPath = quote(scriptPath.trim(), escaping);
             if (a.isBlank()) {
                 a = quotedPath;
             } else if (!containsScriptPath(a, scriptPath)) {
@@ -84,7 +211,7 @@ public class CommandStrategy implements NodeExecutor {
             }
         }
 
-        return maybeAppendPayloadArg(pythonCommand, a, context);
+        return maybeAppendPayloadArg(pythonCommand, a, hasTemplate, escaping, context);
     }
 
     private boolean containsScriptPath(String args, String scriptPath) {
@@ -94,25 +221,23 @@ public class CommandStrategy implements NodeExecutor {
         return normalizedArgs.contains(normalizedPath);
     }
 
-    private String maybeAppendPayloadArg(boolean pythonCommand, String args, ExecutionContext context) {
+    private String maybeAppendPayloadArg(boolean pythonCommand, String args, boolean hasTemplate, Escaping escaping, ExecutionContext context) {
         if (!pythonCommand) return args;
 
         String a = args == null ? "" : args.trim();
-        boolean hasTemplate = a.contains("{{") && a.contains("}}");
 
-        Object payloadObj = context.getVariable("payload");
-        String payload = payloadObj == null ? null : String.valueOf(payloadObj);
+        Object payloadObj = context.get(PAYLOAD);
+        String payload = payloadObj == null ? null : Template.stringify(payloadObj);
 
         if (!hasTemplate && payload != null && !payload.isBlank()) {
-            String escaped = payload.replace("\"", "\\\"");
-            if (a.isBlank()) return quote(escaped);
-            return a + " " + quote(escaped);
+            String quoted = escaping.quote(payload);
+            if (a.isBlank()) return quoted;
+            return a + " " + quoted;
         }
 
         return a;
     }
 
-
     private boolean isPythonCommand(String command) {
         if (command == null) return false;
         String c = command.trim().toLowerCase();
@@ -128,28 +253,11 @@ public class CommandStrategy implements NodeExecutor {
         return v;
     }
 
-    private String quote(String value) {
+    private String quote(String value, Escaping escaping) {
         if (value == null) return "\"\"";
         String v = value.trim();
-        if (v.startsWith("\"") && v.endsWith("\"")) return v;
-        return "\"" + v.replace("\"", "\\\"") + "\"";
-    }
-
-    private String renderTemplate(String input, ExecutionContext context) {
-        if (input == null || input.isBlank()) return input;
-
-        Matcher matcher = TEMPLATE_PATTERN.matcher(input);
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String key = matcher.group(1);
-            Object value = context.getVariable(key);
-            String replacement = value == null ? "" : String.valueOf(value);
-            matcher.appendReplacement(sb, Matcher.quoteReplacement(replacement));
-        }
-
-        matcher.appendTail(sb);
-        return sb.toString();
+        if (v.startsWith("\"") && v.endsWith("\"") && v.length() >= 2) return v;
+        return escaping.quote(v);
     }
 
     @SuppressWarnings("unchecked")
@@ -165,14 +273,22 @@ public class CommandStrategy implements NodeExecutor {
         return String.valueOf(v);
     }
 
-    private String readAll(java.io.InputStream in) throws Exception {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append("\n");
-            }
+    private static Variable outputKey(String key) {
+        return key == null || key.isBlank() ? null : Variable.of(key);
+    }
+
+    private long asLong(Object v, long fallback) {
+        if (v == null) return fallback;
+        if (v instanceof Number n) return n.longValue();
+        try {
+            return Long.parseLong(String.valueOf(v).trim());
+        } catch (NumberFormatException e) {
+            return fallback;
         }
-        return sb.toString();
+    }
+
+    private Path asPath(Object v) {
+        String s = asString(v);
+        return s == null || s.isBlank() ? null : Paths.get(s.trim());
     }
 }
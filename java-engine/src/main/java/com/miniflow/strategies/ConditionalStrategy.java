@@ -1,63 +1,93 @@
 package com.miniflow.strategies;
 
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.Variable;
+import com.miniflow.expr.Expression;
 import com.miniflow.model.Node;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class ConditionalStrategy implements NodeExecutor {
-    @Override
-    public void execute(Node node, ExecutionContext context) throws Exception {
-        Map<String, Object> config = extractConfig(node);
+    private static final String DEFAULT_BRANCH = "DEFAULT";
+    private static final Variable BRANCH = Variable.of("__branch");
 
-        String condition = asString(config.get("condition"));
-        if (condition == null) condition = asString(config.get("expression"));
-        if (condition == null) throw new Exception("Missing condition in node config");
+    // Compiled once per node: `condition` picks TRUE/FALSE, `switch` routes on the value itself and
+    // `cases` routes to the first matching label. Unmatched switches/cases go to `default`.
+    private record Routing(Expression condition, Expression selector, List<String> labels,
+                           List<Expression> cases, String fallback) {
+    }
 
-        boolean result = eval(condition, context);
-        context.setVariable("__branch", result ? "TRUE" : "FALSE");
+    @Override
+    public String type() {
+        return "CONDITIONAL";
     }
 
-    private boolean eval(String expr, ExecutionContext context) {
-        String s = expr.trim();
-        String op = s.contains("==") ? "==" : s.contains("!=") ? "!=" : null;
-        if (op == null) return false;
+    @Override
+    public Prepared prepare(Node node) throws Exception {
+        Routing r = compile(extractConfig(node));
+        return context -> context.set(BRANCH, route(r, context));
+    }
 
-        String[] parts = s.split(op, 2);
-        if (parts.length != 2) return false;
+    @Override
+    public void execute(Node node, ExecutionContext context) throws Exception {
+        prepare(node).execute(context);
+    }
 
-        String left = parts[0].trim();
-        String right = parts[1].trim();
+    private String route(Routing r, ExecutionContext context) {
+        if (r.condition() != null) return r.condition().test(context) ? "TRUE" : "FALSE";
 
-        if (left.startsWith("context.")) left = left.substring("context.".length());
+        if (r.selector() != null) {
+            Object v = r.selector().evaluate(context);
+            String label = v == null ? "" : String.valueOf(v);
+            return label.isBlank() ? r.fallback() : label;
+        }
 
-        Object lv = context.getVariable(left);
-        Object rv = parseLiteral(right);
+        for (int i = 0; i < r.cases().size(); i++) {
+            if (r.cases().get(i).test(context)) return r.labels().get(i);
+        }
+        return r.fallback();
+    }
 
-        if (lv == null && rv == null) return "==".equals(op);
-        if (lv == null || rv == null) return "!=".equals(op);
+    private Routing compile(Map<String, Object> config) throws Exception {
+        String fallback = asString(config.get("default"));
+        if (fallback == null || fallback.isBlank()) fallback = DEFAULT_BRANCH;
 
-        if (lv instanceof Number && rv instanceof Number) {
-            double a = ((Number) lv).doubleValue();
-            double b = ((Number) rv).doubleValue();
-            return "==".equals(op) ? a == b : a != b;
+        String condition = asString(config.get("condition"));
+        if (condition == null) condition = asString(config.get("expression"));
+        if (condition != null) {
+            return new Routing(Expression.compile(condition), null, List.of(), List.of(), fallback);
         }
 
-        String a = String.valueOf(lv);
-        String b = String.valueOf(rv);
-        return "==".equals(op) ? a.equals(b) : !a.equals(b);
-    }
+        String selector = asString(config.get("switch"));
+        if (selector != null) {
+            return new Routing(null, Expression.compile(selector), List.of(), List.of(), fallback);
+        }
 
-    private Object parseLiteral(String raw) {
-        String r = raw.trim();
-        if ((r.startsWith("\"") && r.endsWith("\"")) || (r.startsWith("'") && r.endsWith("'"))) {
-            return r.substring(1, r.length() - 1);
+        Object cases = config.get("cases");
+        if (cases == null) throw new Exception("Missing condition in node config");
+
+        List<String> labels = new ArrayList<>();
+        List<Expression> tests = new ArrayList<>();
+        if (cases instanceof Map<?, ?> m) {
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                labels.add(String.valueOf(e.getKey()));
+                tests.add(Expression.compile(String.valueOf(e.getValue())));
+            }
+        } else if (cases instanceof List<?> l) {
+            for (Object item : l) {
+                if (!(item instanceof Map<?, ?> c)) throw new Exception("Invalid case in node config: " + item);
+                Object when = c.get("when") != null ? c.get("when") : c.get("condition");
+                Object label = c.get("branch") != null ? c.get("branch") : c.get("label");
+                if (when == null || label == null) throw new Exception("Each case needs 'when' and 'branch'");
+                labels.add(String.valueOf(label));
+                tests.add(Expression.compile(String.valueOf(when)));
+            }
+        } else {
+            throw new Exception("'cases' must be a list or an object");
         }
-        if ("true".equalsIgnoreCase(r)) return true;
-        if ("false".equalsIgnoreCase(r)) return false;
-        try { return Integer.parseInt(r); } catch (Exception ignored) {}
-        try { return Double.parseDouble(r); } catch (Exception ignored) {}
-        return r;
+        return new Routing(null, null, List.copyOf(labels), List.copyOf(tests), fallback);
     }
 
     private Map<String, Object> extractConfig(Node node) {
@@ -7,6 +7,11 @@ import java.nio.file.Paths;
 import java.util.Map;
 
 public class CreateFolderStrategy implements NodeExecutor {
+    @Override
+    public String type() {
+        return "CREATE_FOLDER";
+    }
+
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
         Map<String, Object> config = extractConfig(node);
@@ -4,6 +4,11 @@ import com.miniflow.context.ExecutionContext;
 import com.miniflow.model.Node;
 
 public class EndStrategy implements NodeExecutor {
+    @Override
+    public String type() {
+        return "END";
+    }
+
     @Override
     public void execute(Node node, ExecutionContext context) {
     }
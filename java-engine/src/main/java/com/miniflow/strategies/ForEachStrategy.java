@@ -0,0 +1,16 @@
+package com.miniflow.strategies;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+
+// The runner drives the loop itself (see ForEachLoop); the node has nothing to do on its own.
+public class ForEachStrategy implements NodeExecutor {
+    @Override
+    public String type() {
+        return "FOREACH";
+    }
+
+    @Override
+    public void execute(Node node, ExecutionContext context) {
+    }
+}
@@ -1,32 +1,71 @@
 package com.miniflow.strategies;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.LargeValue;
+import com.miniflow.context.SpillBuffer;
+import com.miniflow.context.Variable;
+import com.miniflow.http.HedgedRequest;
+import com.miniflow.http.HttpCache;
+import com.miniflow.http.HttpClientPool;
+import com.miniflow.http.RetryPolicy;
+import com.miniflow.json.JsonExtractionPlan;
+import com.miniflow.metrics.Metrics;
 import com.miniflow.model.Node;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 public class HttpRequestStrategy implements NodeExecutor {
-    private final ObjectMapper mapper = new ObjectMapper();
+    private static final String PHASE = "miniflow_http_phase_seconds";
+    private static final Variable HTTP_STATUS = Variable.of("httpStatus");
+    private static final Variable STATUS = Variable.of("status");
+    private static final Variable HTTP_ENDPOINT = Variable.of("httpEndpoint");
+    private static final Variable HTTP_CACHE = Variable.of("httpCache");
+    private static final Variable HTTP_BODY = Variable.of("httpBody");
+    private static final Variable HTTP_ATTEMPTS = Variable.of("httpAttempts");
+    private static final Variable HTTP_LAUNCHED = Variable.of("httpLaunched");
+    private static final Variable HTTP_CIRCUIT = Variable.of("httpCircuit");
+
+    // Everything derived from the node config alone, parsed once per node.
+    private record Settings(Map<String, Object> config, String method, String url, List<String> urls,
+                            Integer timeoutMs, Object headers, Object body, String fallbackMode, boolean stopOnFail,
+                            RetryPolicy retry, JsonExtractionPlan extraction, boolean retainBody,
+                            HttpCache.Policy cachePolicy) {
+    }
+
+    @Override
+    public String type() {
+        return "HTTP_REQUEST";
+    }
+
+    @Override
+    public Prepared prepare(Node node) throws Exception {
+        Settings settings = settings(extractConfig(node));
+        return context -> run(node, settings, context);
+    }
 
     @Override
     public void execute(Node node, ExecutionContext context) throws Exception {
-        Map<String, Object> config = extractConfig(node);
+        run(node, settings(extractConfig(node)), context);
+    }
 
+    private Settings settings(Map<String, Object> config) throws Exception {
         String method = asString(config.getOrDefault("method", "GET"));
         String url = asString(config.get("url"));
         Object fallbackObj = config.get("fallbackUrls");
-        Integer timeoutMs = asInt(config.getOrDefault("timeoutMs", 5000));
-        Integer retries = asInt(config.getOrDefault("retries", 0));
-        Object headersObj = config.get("headers");
-        Object bodyObj = config.get("body");
         Object mappingObj = config.get("outputMapping");
         if (mappingObj == null) mappingObj = config.get("map");
 
@@ -42,59 +81,113 @@ public class HttpRequestStrategy implements NodeExecutor {
             }
         }
 
-        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(timeoutMs)).build();
+        return new Settings(config, method, url, List.copyOf(urls),
+            asInt(config.getOrDefault("timeoutMs", 5000)),
+            config.get("headers"),
+            config.get("body"),
+            asString(config.getOrDefault("fallbackMode", "SEQUENTIAL")).trim().toUpperCase(),
+            isStopOnFail(config),
+            RetryPolicy.fromConfig(config),
+            mappingObj instanceof Map<?, ?> mm ? JsonExtractionPlan.compile(mm) : null,
+            !"false".equalsIgnoreCase(String.valueOf(config.getOrDefault("retainBody", true))),
+            "GET".equalsIgnoreCase(method) ? HttpCache.Policy.fromConfig(config.get("cache")) : HttpCache.Policy.OFF);
+    }
 
+    private void run(Node node, Settings settings, ExecutionContext context) throws Exception {
+        Map<String, Object> config = settings.config();
+        String method = settings.method();
+        String url = settings.url();
+        List<String> urls = settings.urls();
+        Integer timeoutMs = settings.timeoutMs();
+        Object headersObj = settings.headers();
+        Object bodyObj = settings.body();
+        String fallbackMode = settings.fallbackMode();
+        boolean stopOnFail = settings.stopOnFail();
+        RetryPolicy retry = settings.retry();
+        JsonExtractionPlan extraction = settings.extraction();
+        boolean retainBody = settings.retainBody();
+        HttpCache.Policy cachePolicy = settings.cachePolicy();
+
+        HttpClientPool pool = HttpClientPool.shared();
+        Function<String, HttpRequest> requestFor = u -> buildRequest(u, method, timeoutMs, headersObj, bodyObj);
+        context.set(HTTP_CACHE, cachePolicy.enabled() ? "MISS" : "BYPASS");
         Exception last = null;
 
-        for (String currentUrl : urls) {
-            int attempts = 0;
-            while (attempts <= retries) {
-                attempts++;
+        if (urls.size() > 1 && (fallbackMode.equals("HEDGE") || fallbackMode.equals("RACE"))) {
+            // Hedged requests only read the cache; the primary URL's fresh entry short-circuits the race.
+            if (cachePolicy.enabled()) {
+                HttpCache.Entry cached = HttpCache.shared().get(HttpCache.key(urls.get(0), headersObj));
+                if (cached != null && cached.isFresh()) {
+                    applyEntry(node, urls.get(0), cached, "HIT", extraction, retainBody, context);
+                    return;
+                }
+            }
+            long delay = fallbackMode.equals("RACE") ? 0 : hedgeDelay(config, pool, urls.get(0), timeoutMs);
+            for (int attempt = 0; attempt <= retry.maxRetries; attempt++) {
+                HttpResponse<InputStream> rejected = null;
                 try {
-                    HttpRequest.Builder b = HttpRequest.newBuilder()
-                        .uri(URI.create(currentUrl))
-                        .timeout(Duration.ofMillis(timeoutMs));
-
-                    if (headersObj instanceof Map<?, ?> hm) {
-                        for (Map.Entry<?, ?> e : hm.entrySet()) {
-                            if (e.getKey() != null && e.getValue() != null) {
-                                b.header(String.valueOf(e.getKey()), String.valueOf(e.getValue()));
-                            }
-                        }
-                    }
+                    long t0 = System.nanoTime();
+                    HedgedRequest.Outcome<InputStream> winner = new HedgedRequest<>(pool, urls, requestFor,
+                        HttpResponse.BodyHandlers.ofInputStream(),
+                        r -> !(isHttpError(r.statusCode()) && stopOnFail),
+                        HttpRequestStrategy::discardBody,
+                        delay).execute();
+                    phase(node, "headers", t0);
+                    context.setInt(HTTP_LAUNCHED, winner.launched());
+                    context.setInt(HTTP_ATTEMPTS, attempt + 1);
+                    recordCircuit(pool, winner.url(), context);
+                    rejected = winner.response();
+                    applyResponse(node, winner.url(), winner.response(), extraction, retainBody, stopOnFail, context);
+                    if (!winner.url().equals(urls.get(0))) Metrics.shared().increment("miniflow_http_fallbacks_total", "node", node.id);
+                    return;
+                } catch (Exception ex) {
+                    last = ex;
+                    boolean retryable = rejected == null ? retry.isRetryable(ex) : retry.isRetryable(rejected.statusCode());
+                    if (!retryable || attempt == retry.maxRetries) break;
+                    backoff(node, retry, attempt, rejected);
+                }
+            }
+            throw last;
+        }
 
-                    if ("POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method) || "PATCH".equalsIgnoreCase(method)) {
-                        String body = bodyObj == null ? "" : String.valueOf(bodyObj);
-                        b.method(method.toUpperCase(), HttpRequest.BodyPublishers.ofString(body));
-                    } else {
-                        b.method(method.toUpperCase(), HttpRequest.BodyPublishers.noBody());
-                    }
+        for (String currentUrl : urls) {
+            String cacheKey = cachePolicy.enabled() ? HttpCache.key(currentUrl, headersObj) : null;
+            HttpCache.Entry cached = cacheKey == null ? null : HttpCache.shared().get(cacheKey);
+            if (cached != null && cached.isFresh()) {
+                applyEntry(node, currentUrl, cached, "HIT", extraction, retainBody, context);
+                if (!currentUrl.equals(url)) Metrics.shared().increment("miniflow_http_fallbacks_total", "node", node.id);
+                return;
+            }
 
-                    HttpResponse<String> resp = client.send(b.build(), HttpResponse.BodyHandlers.ofString());
-                    int httpStatus = resp.statusCode();
-                    String body = resp.body();
-
-                    context.setVariable("httpStatus", httpStatus);
-                    context.setVariable("status", httpStatus);
-                    context.setVariable("httpBody", body);
-
-                    if (mappingObj instanceof Map<?, ?> mm) {
-                        for (Map.Entry<?, ?> e : mm.entrySet()) {
-                            if (e.getKey() == null || e.getValue() == null) continue;
-                            String key = String.valueOf(e.getKey());
-                            String path = String.valueOf(e.getValue());
-                            Object value = resolveMapping(path, httpStatus, body);
-                            context.setVariable(key, value);
-                        }
-                    }
+            for (int attempt = 0; attempt <= retry.maxRetries; attempt++) {
+                HttpResponse<InputStream> resp;
+                try {
+                    long t0 = System.nanoTime();
+                    HttpRequest request = requestFor.apply(currentUrl);
+                    if (cached != null && cached.hasValidators()) request = HttpCache.conditional(request, cached);
+                    resp = pool.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                    phase(node, "headers", t0);
+                } catch (Exception ex) {
+                    last = ex;
+                    recordCircuit(pool, currentUrl, context);
+                    if (!retry.isRetryable(ex) || attempt == retry.maxRetries) break;
+                    backoff(node, retry, attempt, null);
+                    continue;
+                }
 
-                    if (isHttpError(httpStatus) && isStopOnFail(config)) {
-                        throw new Exception("HTTP " + httpStatus + " en " + currentUrl);
+                context.setInt(HTTP_ATTEMPTS, attempt + 1);
+                recordCircuit(pool, currentUrl, context);
+                try {
+                    if (cacheKey == null || !applyThroughCache(node, currentUrl, cacheKey, cached, resp, cachePolicy,
+                            HttpCache.authenticated(headersObj), extraction, retainBody, context)) {
+                        applyResponse(node, currentUrl, resp, extraction, retainBody, stopOnFail, context);
                     }
-
+                    if (!currentUrl.equals(url)) Metrics.shared().increment("miniflow_http_fallbacks_total", "node", node.id);
                     return;
                 } catch (Exception ex) {
                     last = ex;
+                    if (!retry.isRetryable(resp.statusCode()) || attempt == retry.maxRetries) break;
+                    backoff(node, retry, attempt, resp);
                 }
             }
         }
@@ -102,87 +195,220 @@ public class HttpRequestStrategy implements NodeExecutor {
         throw last == null ? new Exception("HTTP request failed") : last;
     }
 
-    private Object resolveMapping(String path, int httpStatus, String body) {
-        if (path == null || path.isBlank()) return null;
-        if ("$.body".equals(path)) return body;
+    private void backoff(Node node, RetryPolicy retry, int attempt, HttpResponse<?> resp) throws InterruptedException {
+        Metrics.shared().increment("miniflow_http_retries_total", "node", node.id);
+        long t0 = System.nanoTime();
+        retry.sleep(attempt, resp);
+        phase(node, "backoff", t0);
+    }
 
-        Object parsed = tryParseJson(body);
+    // "headers" covers connect, send and the server's time to first byte: HttpClient does not expose
+    // them separately. "body" is reading plus mapping extraction.
+    private static void phase(Node node, String phase, long startNanos) {
+        Metrics.shared().recordNanos(PHASE, System.nanoTime() - startNanos, "node", node.id, "phase", phase);
+    }
 
-        if ("$.status".equals(path)) {
-            Object statusFromBody = extractFromParsed(parsed, "status");
-            if (statusFromBody != null) return normalizeValue(statusFromBody);
-            return httpStatus;
+    private void recordCircuit(HttpClientPool pool, String url, ExecutionContext context) {
+        try {
+            context.set(HTTP_CIRCUIT, pool.breakerState(URI.create(url)).name());
+        } catch (IllegalArgumentException ignored) {
         }
+    }
 
-        if ("$.data".equals(path)) {
-            Object v = extractFromParsed(parsed, "data");
-            if (v == null) v = extractFromParsed(parsed, "payload");
-            return normalizeValue(v);
+    private HttpRequest buildRequest(String url, String method, int timeoutMs, Object headersObj, Object bodyObj) {
+        HttpRequest.Builder b = HttpRequest.newBuilder()
+            .uri(URI.create(url))
+            .timeout(Duration.ofMillis(timeoutMs));
+
+        if (headersObj instanceof Map<?, ?> hm) {
+            for (Map.Entry<?, ?> e : hm.entrySet()) {
+                if (e.getKey() != null && e.getValue() != null) {
+                    b.header(String.valueOf(e.getKey()), String.valueOf(e.getValue()));
+                }
+            }
         }
 
-        if ("$.payload".equals(path)) {
-            Object v = extractFromParsed(parsed, "payload");
-            if (v == null) v = extractFromParsed(parsed, "data");
-            return normalizeValue(v);
+        if ("POST".equalsIgnoreCase(method) || "PUT".equalsIgnoreCase(method) || "PATCH".equalsIgnoreCase(method)) {
+            String body = bodyObj == null ? "" : String.valueOf(bodyObj);
+            b.method(method.toUpperCase(), HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            b.method(method.toUpperCase(), HttpRequest.BodyPublishers.noBody());
         }
 
-        if (path.startsWith("$.") && parsed != null) {
-            Object v = extractFromParsed(parsed, path.substring(2));
-            return normalizeValue(v);
+        return b.build();
+    }
+
+    // The body is read exactly once: kept only when it has to be (retainBody or a $.body mapping), in
+    // memory or past the spill threshold in a file, otherwise the extraction plan streams straight
+    // from the connection.
+    private void applyResponse(Node node, String url, HttpResponse<InputStream> resp, JsonExtractionPlan extraction,
+                               boolean retainBody, boolean stopOnFail, ExecutionContext context) throws Exception {
+        applyResponse(node, url, resp, resp.body(), extraction, retainBody, stopOnFail, context);
+    }
+
+    private void applyResponse(Node node, String url, HttpResponse<?> resp, InputStream stream, JsonExtractionPlan extraction,
+                               boolean retainBody, boolean stopOnFail, ExecutionContext context) throws Exception {
+        int httpStatus = resp.statusCode();
+
+        context.setInt(HTTP_STATUS, httpStatus);
+        context.setInt(STATUS, httpStatus);
+        context.set(HTTP_ENDPOINT, url);
+
+        Map<String, Object> mapped;
+        long t0 = System.nanoTime();
+        CountingInputStream counted = new CountingInputStream(stream);
+        try (InputStream in = counted) {
+            if (retainBody || (extraction != null && extraction.needsBody())) {
+                try (SpillBuffer buffer = new SpillBuffer(charsetOf(resp))) {
+                    in.transferTo(buffer);
+                    Object body = buffer.finish();
+                    context.set(HTTP_BODY, retainBody ? body : null);
+                    if (extraction == null) mapped = Map.of();
+                    else if (body instanceof LargeValue large) mapped = extraction.evaluate(large, httpStatus);
+                    else mapped = extraction.evaluate(buffer.toByteArray(), httpStatus, body);
+                }
+            } else {
+                context.set(HTTP_BODY, null);
+                mapped = extraction == null ? Map.of() : extraction.evaluate(in, httpStatus);
+            }
         }
 
-        return null;
+        phase(node, "body", t0);
+        Metrics.shared().add("miniflow_http_bytes_received_total", counted.count, "node", node.id);
+
+        for (Map.Entry<String, Object> e : mapped.entrySet()) context.setVariable(e.getKey(), e.getValue());
+
+        if (isHttpError(httpStatus) && stopOnFail) {
+            throw new Exception("HTTP " + httpStatus + " en " + url);
+        }
     }
 
-    private Object tryParseJson(String body) {
+    // Answers a 304 from the stale entry, or buffers and stores a cacheable response. Returns false
+    // when the response is not cacheable and should go through the normal streaming path. A body past
+    // the cache's per-entry limit is not stored: what was buffered is replayed ahead of the rest of
+    // the stream so it still spills like any other response.
+    private boolean applyThroughCache(Node node, String url, String key, HttpCache.Entry cached,
+                                      HttpResponse<InputStream> resp, HttpCache.Policy policy, boolean authenticated,
+                                      JsonExtractionPlan extraction, boolean retainBody, ExecutionContext context)
+            throws Exception {
+        HttpCache cache = HttpCache.shared();
+        if (resp.statusCode() == 304 && cached != null) {
+            discardBody(resp);
+            applyEntry(node, url, cache.revalidated(cached, resp.headers(), policy), "REVALIDATED", extraction, retainBody, context);
+            return true;
+        }
+
+        Metrics.shared().increment("miniflow_http_cache_total", "node", node.id, "result", "MISS");
+        if (!cache.isStorable(resp.statusCode(), resp.headers(), policy)) return false;
+        long limit = cache.maxEntryBytes();
+        if (resp.headers().firstValueAsLong("Content-Length").orElse(0) > limit) return false;
+
+        long t0 = System.nanoTime();
+        InputStream in = resp.body();
+        byte[] bytes;
         try {
-            if (body == null || body.isBlank()) return null;
-            return mapper.readValue(body, Object.class);
-        } catch (Exception ignored) {
-            return null;
+            bytes = in.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, limit + 1));
+        } catch (IOException e) {
+            in.close();
+            throw e;
         }
+        if (bytes.length > limit) {
+            // Only 200s are storable, so stopOnFail cannot apply here.
+            applyResponse(node, url, resp, new SequenceInputStream(new ByteArrayInputStream(bytes), in), extraction,
+                retainBody, false, context);
+            return true;
+        }
+        in.close();
+        Metrics.shared().add("miniflow_http_bytes_received_total", bytes.length, "node", node.id);
+        HttpCache.Entry entry = cache.store(key, url, resp.statusCode(), resp.headers(), bytes, policy, authenticated);
+        applyEntry(node, url, entry, "MISS", extraction, retainBody, context);
+        phase(node, "body", t0);
+        return true;
     }
 
-    private Object extractFromParsed(Object parsed, String dottedPath) {
-        if (parsed == null || dottedPath == null || dottedPath.isBlank()) return null;
+    private void applyEntry(Node node, String url, HttpCache.Entry entry, String outcome,
+                            JsonExtractionPlan extraction, boolean retainBody, ExecutionContext context) throws IOException {
+        if (!outcome.equals("MISS")) {
+            HttpCache.shared().recordHit();
+            Metrics.shared().increment("miniflow_http_cache_total", "node", node.id, "result", outcome);
+        }
+        boolean needsText = retainBody || (extraction != null && extraction.needsBody());
+        Object body = needsText ? SpillBuffer.of(entry.body(), charsetOf(entry.contentType())) : null;
 
-        String[] parts = dottedPath.split("\\.");
-        Object cur = parsed;
+        context.setInt(HTTP_STATUS, entry.status());
+        context.setInt(STATUS, entry.status());
+        context.set(HTTP_ENDPOINT, url);
+        context.set(HTTP_CACHE, outcome);
+        context.set(HTTP_BODY, retainBody ? body : null);
 
-        for (String p : parts) {
-            if (cur instanceof Map<?, ?> m) {
-                cur = m.get(p);
-            } else {
-                return null;
-            }
+        Map<String, Object> mapped = extraction == null ? Map.of() : extraction.evaluate(entry.body(), entry.status(), body);
+        for (Map.Entry<String, Object> e : mapped.entrySet()) context.setVariable(e.getKey(), e.getValue());
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
         }
 
-        return cur;
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    private static void discardBody(HttpResponse<InputStream> resp) {
+        try {
+            resp.body().close();
+        } catch (IOException ignored) {
+        }
     }
 
-    private Object normalizeValue(Object value) {
-        if (value == null) return null;
+    private static Charset charsetOf(HttpResponse<?> resp) {
+        return charsetOf(resp.headers().firstValue("Content-Type").orElse(null));
+    }
 
-        if (value instanceof String s) {
-            String t = s.trim();
-            if (t.matches("^-?\\d+$")) {
+    private static Charset charsetOf(String contentType) {
+        String type = contentType == null ? "" : contentType;
+        for (String part : type.split(";")) {
+            String p = part.trim();
+            if (p.regionMatches(true, 0, "charset=", 0, 8)) {
                 try {
-                    return Integer.parseInt(t);
+                    return Charset.forName(p.substring(8).replace("\"", "").trim());
                 } catch (Exception ignored) {
                 }
             }
-            if (t.matches("^-?\\d+\\.\\d+$")) {
-                try {
-                    return Double.parseDouble(t);
-                } catch (Exception ignored) {
-                }
-            }
-            return s;
         }
-
-        return value;
+        return StandardCharsets.UTF_8;
     }
 
+    // Explicit hedgeDelayMs wins; otherwise the primary host's observed latency percentile.
+    private long hedgeDelay(Map<String, Object> config, HttpClientPool pool, String primaryUrl, int timeoutMs) {
+        Integer fixed = asInt(config.get("hedgeDelayMs"));
+        if (fixed != null) return Math.max(1, fixed);
+
+        Integer percentile = asInt(config.getOrDefault("hedgePercentile", 95));
+        long observed = pool.latencyPercentile(URI.create(primaryUrl), percentile == null ? 95 : percentile, 20);
+        if (observed > 0) return observed;
+        return Math.max(1, timeoutMs / 4);
+    }
 
     private boolean isHttpError(int status) {
         return status >= 400;
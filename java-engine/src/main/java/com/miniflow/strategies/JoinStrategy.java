@@ -0,0 +1,15 @@
+package com.miniflow.strategies;
+
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.model.Node;
+
+public class JoinStrategy implements NodeExecutor {
+    @Override
+    public String type() {
+        return "JOIN";
+    }
+
+    @Override
+    public void execute(Node node, ExecutionContext context) {
+    }
+}
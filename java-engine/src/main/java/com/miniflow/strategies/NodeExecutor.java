@@ -3,6 +3,28 @@ package com.miniflow.strategies;
 import com.miniflow.model.Node;
 import com.miniflow.context.ExecutionContext;
 
-public interface NodeExecutor {
+// One instance per node type, shared by every node and run, so implementations must be thread-safe.
+// Executors are found through ServiceLoader (META-INF/services/com.miniflow.strategies.NodeExecutor);
+// init runs once before first use and close when the engine shuts down. prepare parses a node's
+// config once per compiled plan and returns the handle the runner calls for that node.
+public interface NodeExecutor extends AutoCloseable {
+    interface Prepared {
+        void execute(ExecutionContext context) throws Exception;
+    }
+
+    // Node type handled, compared case-insensitively.
+    String type();
+
     void execute(Node node, ExecutionContext context) throws Exception;
+
+    default void init() throws Exception {
+    }
+
+    default Prepared prepare(Node node) throws Exception {
+        return context -> execute(node, context);
+    }
+
+    @Override
+    default void close() {
+    }
 }
@@ -4,6 +4,11 @@ import com.miniflow.model.Node;
 import com.miniflow.context.ExecutionContext;
 
 public class StartStrategy implements NodeExecutor {
+    @Override
+    public String type() {
+        return "START";
+    }
+
     @Override
     public void execute(Node node, ExecutionContext context) {
     }
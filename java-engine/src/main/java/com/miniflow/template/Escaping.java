@@ -0,0 +1,84 @@
+package com.miniflow.template;
+
+// How interpolated values are made safe for the command line they end up in. The quote state is
+// the one in effect where the slot sits in the template, so "{{x}}", '{{x}}' and {{x}} each get
+// the escaping that keeps x a single, literal piece of text.
+public enum Escaping {
+    NONE,
+    POSIX,
+    CMD;
+
+    public enum Quote { NONE, SINGLE, DOUBLE }
+
+    public static Escaping shell() {
+        return System.getProperty("os.name").toLowerCase().contains("win") ? CMD : POSIX;
+    }
+
+    public void append(String value, Quote quote, StringBuilder out) {
+        switch (this) {
+            case NONE -> out.append(value);
+            case POSIX -> appendPosix(value, quote, out);
+            case CMD -> appendCmd(value, quote, out);
+        }
+    }
+
+    // A complete, standalone argument.
+    public String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        append(value, Quote.NONE, sb);
+        return sb.toString();
+    }
+
+    private static void appendPosix(String value, Quote quote, StringBuilder out) {
+        switch (quote) {
+            case SINGLE -> {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '\'') out.append("'\\''");
+                    else out.append(c);
+                }
+            }
+            case DOUBLE -> {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"' || c == '\\' || c == '$' || c == '`') out.append('\\');
+                    out.append(c);
+                }
+            }
+            case NONE -> {
+                if (!value.isEmpty() && isPlain(value)) {
+                    out.append(value);
+                    return;
+                }
+                out.append('\'');
+                appendPosix(value, Quote.SINGLE, out);
+                out.append('\'');
+            }
+        }
+    }
+
+    private static void appendCmd(String value, Quote quote, StringBuilder out) {
+        if (quote == Quote.NONE && !value.isEmpty() && isPlain(value)) {
+            out.append(value);
+            return;
+        }
+        if (quote == Quote.NONE) out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('\\');
+            out.append(c);
+        }
+        if (quote == Quote.NONE) out.append('"');
+    }
+
+    private static boolean isPlain(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '_' || c == '-' || c == '.' || c == '/' || c == ':' || c == '=' || c == '@'
+                    || c == ',' || c == '+' || c == '%';
+            if (!ok) return false;
+        }
+        return true;
+    }
+}
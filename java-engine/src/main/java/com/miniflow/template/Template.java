@@ -0,0 +1,150 @@
+package com.miniflow.template;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miniflow.context.ExecutionContext;
+import com.miniflow.context.Variable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A "{{ ... }}" template compiled into literal and slot segments. Slots take a context path
+// (name, context.name, a.b[0].c, a['x y']) and optional filters: | default:"text", | json, | raw.
+// Anything between braces that does not parse stays in the output as written.
+public final class Template {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_CACHED = 4096;
+    private static final int MAX_BUFFER = 64 * 1024;
+    private static final Map<String, Template> CACHE = new ConcurrentHashMap<>();
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    record Slot(Variable root, List<Object> steps, String fallback, boolean raw, boolean json,
+                Escaping.Quote posix, Escaping.Quote cmd) {
+    }
+
+    // One argv entry: literal text (quotes already removed) and slots, never split by a value.
+    record Word(List<Object> parts, boolean quoted) {
+    }
+
+    private final String source;
+    private final List<Object> parts;
+    private final List<Word> words;
+    private final boolean hasSlots;
+
+    private Template(String source, List<Object> parts, List<Word> words) {
+        this.source = source;
+        this.parts = parts;
+        this.words = words;
+        this.hasSlots = parts.stream().anyMatch(p -> p instanceof Slot);
+    }
+
+    public static Template compile(String source) {
+        if (source == null) source = "";
+        Template cached = CACHE.get(source);
+        if (cached != null) return cached;
+
+        Template compiled = new TemplateParser(source).parse();
+        if (CACHE.size() >= MAX_CACHED) CACHE.clear();
+        CACHE.put(source, compiled);
+        return compiled;
+    }
+
+    static Template of(String source, List<Object> parts, List<Word> words) {
+        return new Template(source, List.copyOf(parts), List.copyOf(words));
+    }
+
+    public boolean hasSlots() {
+        return hasSlots;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public String render(ExecutionContext context, Escaping escaping) {
+        if (!hasSlots) return source;
+
+        StringBuilder sb = buffer();
+        for (Object part : parts) {
+            if (part instanceof String s) {
+                sb.append(s);
+            } else {
+                Slot slot = (Slot) part;
+                String value = text(slot, context);
+                if (slot.raw()) sb.append(value);
+                else escaping.append(value, escaping == Escaping.CMD ? slot.cmd() : slot.posix(), sb);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Shell-style word splitting happens at compile time; values land in their argument verbatim.
+    public List<String> renderArgv(ExecutionContext context) {
+        List<String> out = new ArrayList<>(words.size());
+        for (Word word : words) {
+            StringBuilder sb = buffer();
+            for (Object part : word.parts()) {
+                if (part instanceof String s) sb.append(s);
+                else sb.append(text((Slot) part, context));
+            }
+            if (sb.length() > 0 || word.quoted()) out.add(sb.toString());
+        }
+        return out;
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder sb = BUFFER.get();
+        if (sb.capacity() > MAX_BUFFER) {
+            sb = new StringBuilder(256);
+            BUFFER.set(sb);
+        }
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static String text(Slot slot, ExecutionContext context) {
+        Object value = resolve(slot, context);
+        if (value == null || (value instanceof String s && s.isEmpty())) {
+            return slot.fallback() == null ? "" : slot.fallback();
+        }
+        return slot.json() ? json(value) : stringify(value);
+    }
+
+    // Text form of a context value: objects and lists as JSON, everything else as-is.
+    public static String stringify(Object value) {
+        if (value == null) return "";
+        if (value instanceof Map<?, ?> || value instanceof Collection<?>) return json(value);
+        return String.valueOf(value);
+    }
+
+    private static String json(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(value);
+        }
+    }
+
+    private static Object resolve(Slot slot, ExecutionContext context) {
+        Object cur = context.get(slot.root());
+        for (Object step : slot.steps()) {
+            if (cur instanceof Map<?, ?> m) {
+                cur = m.get(String.valueOf(step));
+            } else if (cur instanceof List<?> l && step instanceof Integer i) {
+                int index = i < 0 ? l.size() + i : i;
+                cur = index >= 0 && index < l.size() ? l.get(index) : null;
+            } else {
+                return null;
+            }
+        }
+        return cur;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
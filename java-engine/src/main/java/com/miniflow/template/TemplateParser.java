@@ -0,0 +1,234 @@
+package com.miniflow.template;
+
+import com.miniflow.context.Variable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class TemplateParser {
+    private final String src;
+    private final List<Object> parts = new ArrayList<>();
+    private final StringBuilder literal = new StringBuilder();
+    private final QuoteTracker posix = new QuoteTracker(true);
+    private final QuoteTracker cmd = new QuoteTracker(false);
+    private final WordBuilder words = new WordBuilder();
+
+    TemplateParser(String src) {
+        this.src = src;
+    }
+
+    Template parse() {
+        int i = 0;
+        while (i < src.length()) {
+            int open = src.indexOf("{{", i);
+            int close = open < 0 ? -1 : src.indexOf("}}", open + 2);
+            if (close < 0) {
+                text(src.substring(i));
+                break;
+            }
+
+            text(src.substring(i, open));
+            Template.Slot slot = slot(src.substring(open + 2, close), posix.quote, cmd.quote);
+            if (slot == null) {
+                text(src.substring(open, close + 2));
+            } else {
+                if (literal.length() > 0) parts.add(literal.toString());
+                literal.setLength(0);
+                parts.add(slot);
+                words.slot(slot);
+            }
+            i = close + 2;
+        }
+        if (literal.length() > 0) parts.add(literal.toString());
+        return Template.of(src, parts, words.finish());
+    }
+
+    private void text(String text) {
+        literal.append(text);
+        posix.feed(text);
+        cmd.feed(text);
+        words.feed(text);
+    }
+
+    private static Template.Slot slot(String body, Escaping.Quote posix, Escaping.Quote cmd) {
+        String[] pieces = splitFilters(body);
+        if (pieces == null) return null;
+
+        String path = pieces[0].trim();
+        if (path.startsWith("context.")) path = path.substring("context.".length());
+        List<Object> steps = parsePath(path);
+        if (steps == null || steps.isEmpty() || !(steps.get(0) instanceof String root)) return null;
+
+        String fallback = null;
+        boolean raw = false;
+        boolean json = false;
+        for (int k = 1; k < pieces.length; k++) {
+            String f = pieces[k].trim();
+            if (f.equals("raw")) raw = true;
+            else if (f.equals("json")) json = true;
+            else if (f.startsWith("default:")) fallback = unquote(f.substring("default:".length()).trim());
+            else return null;
+        }
+        return new Template.Slot(Variable.of(root), List.copyOf(steps.subList(1, steps.size())), fallback, raw, json, posix, cmd);
+    }
+
+    // Splits on '|' outside quotes; null when a quote is left open.
+    private static String[] splitFilters(String body) {
+        List<String> out = new ArrayList<>(2);
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '|') {
+                out.add(body.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (quote != 0) return null;
+        out.add(body.substring(start));
+        return out.toArray(new String[0]);
+    }
+
+    // a.b[0]['c d'] -> [a, b, 0, "c d"]; null if it is not a plain path.
+    private static List<Object> parsePath(String path) {
+        List<Object> steps = new ArrayList<>(3);
+        int i = 0;
+        boolean expectName = true;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '[') {
+                int close = path.indexOf(']', i);
+                if (close < 0) return null;
+                String inner = path.substring(i + 1, close).trim();
+                if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"')) {
+                    steps.add(unquote(inner));
+                } else {
+                    try {
+                        steps.add(Integer.valueOf(inner));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+                i = close + 1;
+                expectName = false;
+            } else if (c == '.') {
+                if (expectName) return null;
+                i++;
+                expectName = true;
+            } else {
+                if (!expectName) return null;
+                int start = i;
+                while (i < path.length() && isNameChar(path.charAt(i))) i++;
+                if (start == i) return null;
+                steps.add(path.substring(start, i));
+                expectName = false;
+            }
+        }
+        return expectName ? null : steps;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '$';
+    }
+
+    private static String unquote(String s) {
+        if (s.length() >= 2 && (s.charAt(0) == '"' || s.charAt(0) == '\'') && s.charAt(s.length() - 1) == s.charAt(0)) {
+            return s.substring(1, s.length() - 1);
+        }
+        return s;
+    }
+
+    // Follows quoting through literal text. cmd.exe only knows double quotes and no escapes.
+    private static final class QuoteTracker {
+        private final boolean posix;
+        Escaping.Quote quote = Escaping.Quote.NONE;
+        private boolean escaped;
+
+        QuoteTracker(boolean posix) {
+            this.posix = posix;
+        }
+
+        void feed(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (escaped) {
+                    escaped = false;
+                } else if (posix && c == '\\' && quote != Escaping.Quote.SINGLE) {
+                    escaped = true;
+                } else if (c == '"' && quote != Escaping.Quote.SINGLE) {
+                    quote = quote == Escaping.Quote.DOUBLE ? Escaping.Quote.NONE : Escaping.Quote.DOUBLE;
+                } else if (posix && c == '\'' && quote != Escaping.Quote.DOUBLE) {
+                    quote = quote == Escaping.Quote.SINGLE ? Escaping.Quote.NONE : Escaping.Quote.SINGLE;
+                }
+            }
+        }
+    }
+
+    // Shell-like word splitting of the literal text for argv rendering.
+    private static final class WordBuilder {
+        private final List<Template.Word> words = new ArrayList<>();
+        private final List<Object> current = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private Escaping.Quote quote = Escaping.Quote.NONE;
+        private boolean escaped;
+        private boolean quoted;
+        private boolean open;
+
+        void feed(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (escaped) {
+                    text.append(c);
+                    escaped = false;
+                    open = true;
+                } else if (quote == Escaping.Quote.SINGLE) {
+                    if (c == '\'') quote = Escaping.Quote.NONE;
+                    else text.append(c);
+                } else if (quote == Escaping.Quote.DOUBLE) {
+                    if (c == '"') quote = Escaping.Quote.NONE;
+                    else if (c == '\\' && i + 1 < s.length() && "\"\\$`".indexOf(s.charAt(i + 1)) >= 0) text.append(s.charAt(++i));
+                    else text.append(c);
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '\'' || c == '"') {
+                    quote = c == '\'' ? Escaping.Quote.SINGLE : Escaping.Quote.DOUBLE;
+                    quoted = true;
+                    open = true;
+                } else if (Character.isWhitespace(c)) {
+                    endWord();
+                } else {
+                    text.append(c);
+                    open = true;
+                }
+            }
+        }
+
+        void slot(Template.Slot slot) {
+            flushText();
+            current.add(slot);
+            open = true;
+        }
+
+        List<Template.Word> finish() {
+            endWord();
+            return words;
+        }
+
+        private void flushText() {
+            if (text.length() > 0) current.add(text.toString());
+            text.setLength(0);
+        }
+
+        private void endWord() {
+            flushText();
+            if (open) words.add(new Template.Word(List.copyOf(current), quoted));
+            current.clear();
+            quoted = false;
+            open = false;
+        }
+    }
+}
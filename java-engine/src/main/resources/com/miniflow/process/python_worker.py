@@ -0,0 +1,75 @@
+# MiniFlow persistent Python worker.
+#
+# Reads one JSON request per line on stdin and answers with one JSON line on the original stdout:
+#   {"id": 1, "script": "/path/x.py", "argv": ["a", "b"], "cwd": "/dir", "maxOutput": 1048576}
+#   {"id": 1, "exitCode": 0, "stdout": "...", "stderr": "...", "truncated": false, "result": <json or null>}
+# Scripts run as __main__ with sys.argv set as on the command line; whatever they leave in a
+# top-level `result` variable is returned when it is JSON-serializable.
+import contextlib
+import io
+import json
+import os
+import runpy
+import sys
+import traceback
+
+protocol = os.fdopen(os.dup(1), "w", encoding="utf-8", buffering=1)
+os.dup2(2, 1)
+base_cwd = os.getcwd()
+base_path = list(sys.path)
+
+
+def tail(text, limit):
+    if limit and len(text) > limit:
+        return text[-limit:]
+    return text
+
+
+def run(request):
+    script = os.path.abspath(request["script"])
+    out, err = io.StringIO(), io.StringIO()
+    exit_code, result = 0, None
+    sys.argv = [script] + [str(a) for a in request.get("argv", [])]
+    sys.path[:] = [os.path.dirname(os.path.abspath(script))] + base_path
+    os.chdir(request.get("cwd") or base_cwd)
+    try:
+        with contextlib.redirect_stdout(out), contextlib.redirect_stderr(err):
+            try:
+                scope = runpy.run_path(script, run_name="__main__")
+                result = scope.get("result")
+            except SystemExit as e:
+                if e.code is None:
+                    exit_code = 0
+                elif isinstance(e.code, int):
+                    exit_code = e.code
+                else:
+                    print(e.code, file=sys.stderr)
+                    exit_code = 1
+            except BaseException as e:
+                # Hide the harness and runpy frames; the trace starts in the user's script.
+                tb = e.__traceback__
+                while tb is not None and tb.tb_frame.f_code.co_filename != script:
+                    tb = tb.tb_next
+                traceback.print_exception(type(e), e, tb or e.__traceback__)
+                exit_code = 1
+    finally:
+        os.chdir(base_cwd)
+
+    try:
+        json.dumps(result)
+    except (TypeError, ValueError):
+        result = None
+
+    limit = request.get("maxOutput") or 0
+    stdout, stderr = out.getvalue(), err.getvalue()
+    return {"exitCode": exit_code, "stdout": tail(stdout, limit), "stderr": tail(stderr, limit),
+            "truncated": bool(limit) and max(len(stdout), len(stderr)) > limit, "result": result}
+
+
+for line in sys.stdin:
+    if not line.strip():
+        continue
+    request = json.loads(line)
+    response = run(request)
+    response["id"] = request.get("id")
+    protocol.write(json.dumps(response) + "\n")